@@ -0,0 +1,56 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Enemy turn cost as the number of enemies grows on a large generated maze.
+ * With more than one enemy all of them step along one shared flow field.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnemyBenchmark {
+    // Edge length of the generated maze
+    @Param({"501"})
+    public int size;
+
+    // Number of enemies chasing the player
+    @Param({"1", "10", "100", "500"})
+    public int enemies;
+
+    private Model model; // Game the benchmark mutates
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        model = new Model(size, 42, enemies);
+    }
+
+    /*
+     * One enemy turn while the player stands still; a new game is started once the
+     * enemies have used up all lives.
+     */
+    @Benchmark
+    public Model moveEnemy() {
+        if (model.isGameOver()) {
+            model = new Model(size, 42, enemies);
+        }
+        model.moveEnemy();
+        return model;
+    }
+}
@@ -0,0 +1,175 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Benchmarks for the hot paths of Model on the hardcoded 20x20 maze and on larger
+ * generated mazes. Run with "-prof gc" to report the allocation rate next to ops/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+    // Maze to run on: the hardcoded layout or the edge length of a generated maze
+    @Param({"hardcoded", "101", "501"})
+    public String maze;
+
+    private Model model; // Game the benchmarks mutate
+    private Model.Position pathTarget; // Farthest cell the player can reach from the start
+    private int stepX; // Direction of a walkable neighbour of the player's start
+    private int stepY;
+    private int direction; // Alternates the movePlayer direction
+
+    private AStarPathFinder aStar; // Standalone A* engine for the maze
+    private RoutingTable routes; // Standalone routing table for the maze
+    private int enemyStart; // Enemy spawn cell index
+    private int playerStart; // Player spawn cell index
+    private Path snapshotFile; // Snapshot of a fresh game, rewritten by saveSnapshot
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        model = newModel();
+        int size = model.getSize();
+        Model.Player player = model.getPlayer();
+
+        // Pick the path preview target with the longest path in range
+        pathTarget = player;
+        int longest = 0;
+        for (int x = Math.max(0, player.x - 3); x <= Math.min(size - 1, player.x + 3); x++) {
+            for (int y = Math.max(0, player.y - 3); y <= Math.min(size - 1, player.y + 3); y++) {
+                Model.Position target = new Model.Position(x, y);
+                int length = model.calculatePathTo(target).size();
+                if (length > longest) {
+                    longest = length;
+                    pathTarget = target;
+                }
+            }
+        }
+
+        // Find a walkable neighbour of the start for movePlayer to walk back and forth to
+        int[][] directions = {{0, 1}, {1, 0}};
+        for (int[] dir : directions) {
+            if (model.movePlayer(dir[0], dir[1])) {
+                model.movePlayer(-dir[0], -dir[1]);
+                stepX = dir[0];
+                stepY = dir[1];
+                break;
+            }
+        }
+        direction = -1;
+
+        aStar = new AStarPathFinder(model.getGrid());
+        routes = RoutingTable.fits(model.getGrid()) ? new RoutingTable(model.getGrid()) : null;
+        enemyStart = model.getEnemy().x * size + model.getEnemy().y;
+        playerStart = player.x * size + player.y;
+
+        if (snapshotFile == null) {
+            snapshotFile = Files.createTempFile("pacmaze", ".snapshot");
+            snapshotFile.toFile().deleteOnExit();
+        }
+        GameSnapshot.save(model, snapshotFile);
+    }
+
+    /*
+     * Creates a fresh game on the selected maze.
+     */
+    private Model newModel() {
+        return "hardcoded".equals(maze) ? new Model(42L) : new Model(Integer.parseInt(maze), 42);
+    }
+
+    /*
+     * Breadth-first path preview from the player's start, as run on every mouse hover.
+     */
+    @Benchmark
+    public List<Model.Position> calculatePathTo() {
+        return model.calculatePathTo(pathTarget);
+    }
+
+    /*
+     * One enemy turn (two steps) while the player stands still. The steps come from the
+     * routing table on mazes small enough for one, and otherwise from the default
+     * IncrementalPathFinder, which repairs its previous search instead of starting over.
+     * When the enemy has used up all lives a new game is started; that happens once
+     * every few dozen turns and is amortised over them.
+     */
+    @Benchmark
+    public Model moveEnemy() {
+        if (model.isGameOver()) {
+            model = newModel();
+        }
+        model.moveEnemy();
+        return model;
+    }
+
+    /*
+     * Single-step player move, walking back and forth between the start and a neighbour.
+     */
+    @Benchmark
+    public boolean movePlayer() {
+        direction = -direction;
+        return model.movePlayer(stepX * direction, stepY * direction);
+    }
+
+    /*
+     * Full A* search between the enemy and player spawn points (opposite corners).
+     */
+    @Benchmark
+    public int enemyStepAStar() {
+        return aStar.nextStep(enemyStart, playerStart);
+    }
+
+    /*
+     * Routing table lookup for the same query as enemyStepAStar.
+     * Mazes too large for a routing table report -1 without doing any work.
+     */
+    @Benchmark
+    public int enemyStepRoutingTable() {
+        return routes != null ? routes.nextStep(enemyStart, playerStart) : -1;
+    }
+
+    /*
+     * Creating a game: maze load or generation, and placeItems.
+     */
+    @Benchmark
+    public Model newGame() {
+        return newModel();
+    }
+
+    /*
+     * Writing the current game to a snapshot file: the body is built in a heap buffer,
+     * written to a temporary file and moved over the previous save.
+     */
+    @Benchmark
+    public Path saveSnapshot() throws IOException {
+        GameSnapshot.save(model, snapshotFile);
+        return snapshotFile;
+    }
+
+    /*
+     * Restoring a game from a snapshot, for comparison with newGame.
+     */
+    @Benchmark
+    public Model loadSnapshot() throws IOException {
+        return GameSnapshot.load(snapshotFile);
+    }
+}
@@ -0,0 +1,160 @@
+package application;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Enemy search strategies compared on the same queries: time per search plus, as
+ * auxiliary counters, the cells each strategy expands (and jump point search scans).
+ * Divide a counter by "queries" for the per-search figure. nextStep answers random
+ * pairs of walkable cells, the same for every strategy on a maze; chaseTurn plays the
+ * queries of a game turn, where the player walks up to three cells at random and the
+ * enemy then takes two steps towards it, which is where the incremental search can
+ * reuse its previous tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+    // Maze to search: the hardcoded layout, a generated maze of the given edge length,
+    // or "open<size>", a grid with 20% of its cells walled at random
+    @Param({"hardcoded", "201", "501", "open501"})
+    public String maze;
+
+    // Search strategy under test
+    @Param({"A_STAR", "BIDIRECTIONAL_BFS", "JUMP_POINT", "INCREMENTAL"})
+    public PathFinder.Strategy strategy;
+
+    private static final int QUERIES = 1024; // Number of distinct start and goal pairs
+
+    private PackedGrid grid; // Maze being searched
+    private PathFinder finder; // Search engine under test
+    private int[] starts; // Start cell of each query
+    private int[] goals; // Goal cell of each query
+    private int query; // Index of the next query
+
+    private int[] offsets; // Cell index offset of each direction (right, down, left, up)
+    private SplittableRandom walk; // Source of the chasing player's moves
+    private int enemy; // Enemy cell of the chase
+    private int player; // Player cell of the chase
+
+    /*
+     * Work counters summed over an iteration, reported by JMH next to the timing.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long queries; // Searches run
+        public long expansions; // Cells expanded over all searches
+        public long scanned; // Cells passed over by jump point scans
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            queries = 0;
+            expansions = 0;
+            scanned = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = newGrid();
+        finder = strategy.create(grid);
+        int size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+
+        int[] walkable = grid.walkableCells();
+        SplittableRandom random = new SplittableRandom(42);
+        starts = new int[QUERIES];
+        goals = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = walkable[random.nextInt(walkable.length)];
+            goals[i] = walkable[random.nextInt(walkable.length)];
+        }
+        walk = new SplittableRandom(7);
+        enemy = starts[0];
+        player = goals[0];
+    }
+
+    /*
+     * Builds the selected maze.
+     */
+    private PackedGrid newGrid() {
+        if ("hardcoded".equals(maze)) {
+            return new Model(42L).getGrid();
+        }
+        if (maze.startsWith("open")) {
+            int size = Integer.parseInt(maze.substring(4));
+            BitSet open = new BitSet(size * size);
+            SplittableRandom random = new SplittableRandom(42);
+            for (int cell = 0; cell < size * size; cell++) {
+                if (random.nextDouble() >= 0.2) open.set(cell);
+            }
+            return new PackedGrid(size, open);
+        }
+        return new Model(Integer.parseInt(maze), 42).getGrid();
+    }
+
+    /*
+     * One search for the first step of a shortest path, as an enemy step runs it.
+     */
+    @Benchmark
+    public int nextStep(Counters counters) {
+        int i = query++ & (QUERIES - 1);
+        int step = finder.nextStep(starts[i], goals[i]);
+        counters.queries++;
+        counters.expansions += finder.getNodesExpanded();
+        if (finder instanceof JumpPointPathFinder) {
+            counters.scanned += ((JumpPointPathFinder) finder).getCellsScanned();
+        }
+        return step;
+    }
+
+    /*
+     * One turn of a chase: the player walks, then the enemy steps twice towards it. A
+     * caught player continues from the next random query pair.
+     */
+    @Benchmark
+    public int chaseTurn(Counters counters) {
+        for (int i = 0; i < 3; i++) {
+            int mask = grid.openNeighbours(player);
+            if (mask == 0) break;
+            // Pick one of the open directions at random
+            for (int skip = walk.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+                mask &= mask - 1;
+            }
+            player += offsets[Integer.numberOfTrailingZeros(mask)];
+        }
+        for (int i = 0; i < 2; i++) {
+            int step = finder.nextStep(enemy, player);
+            counters.queries++;
+            counters.expansions += finder.getNodesExpanded();
+            if (step < 0 || step == player) {
+                int next = query++ & (QUERIES - 1);
+                enemy = starts[next];
+                player = goals[next];
+                break;
+            }
+            enemy = step;
+        }
+        return enemy;
+    }
+}
@@ -0,0 +1,39 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Full-game playout benchmark: a fresh game played to the end by the greedy exit
+ * policy through the headless Simulation, as used for difficulty tuning.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayoutBenchmark {
+    // Maze to run on: the hardcoded layout or the edge length of a generated maze
+    @Param({"hardcoded", "101"})
+    public String maze;
+
+    private final GreedyExitPolicy policy = new GreedyExitPolicy();
+    private long seed; // Seed of the next game
+
+    @Benchmark
+    public GameResult playGame() {
+        Model model = "hardcoded".equals(maze) ? new Model(seed++) : new Model(Integer.parseInt(maze), seed++);
+        return Simulation.playGame(model, policy, Simulation.DEFAULT_MAX_TURNS);
+    }
+}
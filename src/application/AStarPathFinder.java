@@ -0,0 +1,274 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Reusable A* search engine for the enemy.
+ * Cells are addressed by a single int index (x * size + y) and every piece of
+ * per-search bookkeeping (g-scores, parents, open/closed state and the binary heap)
+ * lives in flat int arrays that are allocated once per maze. Instead of clearing
+ * those arrays between searches, each entry is stamped with the generation of the
+ * search that wrote it, so a new search only has to bump the generation counter.
+ * As a result a call to nextStep does not allocate anything.
+ * Subclasses can replace the successors of an expanded cell (see expand), as
+ * JumpPointPathFinder does, and reuse the rest of the search.
+ */
+public class AStarPathFinder implements PathFinder {
+    private final PackedGrid grid; // Maze the searches run on
+    private final int size; // Width and height of the maze
+    private final int[] offsets; // Cell index offset of each neighbour direction (right, down, left, up)
+
+    private final int[] gScore; // Cost from the start to each cell
+    private final int[] cameFrom; // Parent of each cell on its best known path
+    private final int[] seen; // Generation in which gScore/cameFrom were last written
+    private final int[] closed; // Generation in which the cell was expanded
+
+    private final int[] heap; // Binary min-heap of cell indices, ordered by fScore
+    private final int[] heapIndex; // Position of each cell inside the heap
+    private final int[] fScore; // gScore + heuristic for each open cell
+    private int heapSize;
+
+    private int generation; // Stamp of the current search
+    private int nodesExpanded; // Number of cells expanded by the last search
+    private int pathLength; // Length of the path found by the last search, -1 if none
+    private int goalX; // Row of the current search's goal
+    private int goalY; // Column of the current search's goal
+
+    /*
+     * Constructor for AStarPathFinder.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to search on
+     */
+    public AStarPathFinder(PackedGrid grid) {
+        this.grid = grid;
+        this.size = grid.getSize();
+        this.offsets = new int[] {1, size, -1, -size};
+        int cells = grid.getCellCount();
+        gScore = new int[cells];
+        cameFrom = new int[cells];
+        seen = new int[cells];
+        closed = new int[cells];
+        heap = new int[cells];
+        heapIndex = new int[cells];
+        fScore = new int[cells];
+    }
+
+    /*
+     * Finds the first step of a shortest path between two cells.
+     *
+     * @param start The cell index to search from
+     * @param goal The cell index to search to
+     * @return The cell index of the next step towards the goal, the goal itself if
+     *         start and goal are the same cell, or -1 if the goal is unreachable
+     */
+    @Override
+    public int nextStep(int start, int goal) {
+        if (start == goal) {
+            pathLength = 0;
+            return goal;
+        }
+        if (!search(start, goal)) return -1;
+
+        // Backtrack from the goal until we reach the cell right after the start
+        int next = goal;
+        while (cameFrom[next] != start) {
+            next = cameFrom[next];
+        }
+        // Successors lie in a straight line from their parent, so step towards it
+        if (next / size == start / size) {
+            return start + Integer.signum(next - start);
+        }
+        return start + Integer.signum(next - start) * size;
+    }
+
+    /*
+     * Calculates the length of a shortest path between two cells.
+     *
+     * @param start The cell index to search from
+     * @param goal The cell index to search to
+     * @return The number of steps on the shortest path, or -1 if unreachable
+     */
+    public int distance(int start, int goal) {
+        if (start == goal) {
+            pathLength = 0;
+            return 0;
+        }
+        search(start, goal);
+        return pathLength;
+    }
+
+    /*
+     * Gets the number of cells expanded by the most recent search.
+     *
+     * @return The node expansion count
+     */
+    @Override
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    @Override
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /*
+     * Runs A* from start to goal, leaving the result in gScore and cameFrom.
+     *
+     * @return true if the goal was reached, false otherwise
+     */
+    private boolean search(int start, int goal) {
+        nextGeneration();
+        nodesExpanded = 0;
+        pathLength = -1;
+        heapSize = 0;
+
+        goalX = goal / size;
+        goalY = goal % size;
+
+        open(start, start, 0, heuristic(start));
+
+        while (heapSize > 0) {
+            int current = poll();
+            if (current == goal) {
+                pathLength = gScore[goal];
+                return true;
+            }
+
+            closed[current] = generation;
+            nodesExpanded++;
+            expand(current, goal);
+        }
+        return false;
+    }
+
+    /*
+     * Adds the successors of a cell that has just been expanded to the open set.
+     * A* visits every walkable neighbour at a cost of one step.
+     *
+     * @param current The expanded cell
+     * @param goal The cell the search is heading for
+     */
+    void expand(int current, int goal) {
+        int nextG = gScore[current] + 1;
+
+        // Visit each walkable neighbour, taken one bit at a time from the grid's mask
+        int mask = grid.openNeighbours(current);
+        while (mask != 0) {
+            int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+            addSuccessor(neighbor, current, nextG);
+        }
+    }
+
+    /*
+     * Opens a successor of an expanded cell, or lowers its cost if it is already open.
+     *
+     * @param cell The successor, in a straight line from the parent
+     * @param parent The expanded cell
+     * @param g The cost from the start to the successor through the parent
+     */
+    final void addSuccessor(int cell, int parent, int g) {
+        if (closed[cell] == generation) return;
+
+        if (seen[cell] != generation) {
+            open(cell, parent, g, g + heuristic(cell));
+        } else if (g < gScore[cell]) {
+            // Better path to a cell that is already in the open set
+            cameFrom[cell] = parent;
+            fScore[cell] -= gScore[cell] - g;
+            gScore[cell] = g;
+            siftUp(heapIndex[cell]);
+        }
+    }
+
+    // Cost and parent of a cell reached by the current search, for use in expand
+    final int costTo(int cell) { return gScore[cell]; }
+    final int parentOf(int cell) { return cameFrom[cell]; }
+
+    /*
+     * Records a newly discovered cell and pushes it onto the open heap.
+     */
+    private void open(int cell, int parent, int g, int f) {
+        seen[cell] = generation;
+        gScore[cell] = g;
+        cameFrom[cell] = parent;
+        fScore[cell] = f;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /*
+     * Removes and returns the open cell with the lowest f-score.
+     */
+    private int poll() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int other = heap[parent];
+            if (!less(cell, other)) break;
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = parent;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) child = right;
+            int other = heap[child];
+            if (!less(other, cell)) break;
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    /*
+     * Heap ordering: lower f-score first, ties broken in favour of the deeper cell
+     * (higher g-score), which is closer to the goal.
+     */
+    private boolean less(int a, int b) {
+        if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+        return gScore[a] > gScore[b];
+    }
+
+    /*
+     * Manhattan distance from a cell to the goal of the current search.
+     */
+    private int heuristic(int cell) {
+        return Math.abs(cell / size - goalX) + Math.abs(cell % size - goalY);
+    }
+
+    /*
+     * Advances the generation stamp, wiping the stamp arrays on overflow.
+     */
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+}
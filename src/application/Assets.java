@@ -0,0 +1,123 @@
+package application;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+
+/*
+ * Process-wide cache of the game's images.
+ * Every image is decoded once per requested size and then shared by all screens, views
+ * and boards, so switching screens or playing turns never touches the disk. Images are
+ * created with JavaFX background loading: preload starts decoding all of them at
+ * startup without blocking the UI, and an image that is not finished yet is simply
+ * shown by its ImageView once it is (canvas users can wait with whenLoaded).
+ */
+public final class Assets {
+    // Sprite images drawn on the board
+    public static final String PLAYER = "img/player.png";
+    public static final String ENEMY = "img/enemy.png";
+    public static final String COIN = "img/coin.png";
+    public static final String CLOCK = "img/clock.png";
+    public static final String EXIT = "img/exit.png";
+
+    // Images used by the menus and popups
+    public static final String LOGO = "img/logo.png";
+    public static final String LOST = "img/lost.png";
+    public static final String OVER = "img/over.png";
+    public static final String WIN = "img/win.png";
+
+    private static final String[] SPRITES = {PLAYER, ENEMY, COIN, CLOCK, EXIT};
+    private static final String[] SCREEN_IMAGES = {LOGO, LOST, OVER, WIN};
+
+    private static final Map<String, Image> images = new ConcurrentHashMap<>(); // Decoded images by path and size
+
+    private Assets() {
+    }
+
+    /*
+     * Starts decoding every image at its natural size, plus the sprites at the given
+     * tile sizes, on JavaFX's background loader. Returns immediately.
+     *
+     * @param tileSizes Edge lengths in pixels of board tiles that will be needed
+     */
+    public static void preload(int... tileSizes) {
+        for (String path : SCREEN_IMAGES) {
+            get(path);
+        }
+        for (String path : SPRITES) {
+            get(path);
+            for (int tileSize : tileSizes) {
+                get(path, tileSize);
+            }
+        }
+    }
+
+    /*
+     * Gets an image at its natural size.
+     *
+     * @param path The class path location of the image
+     * @return The shared image, possibly still loading
+     */
+    public static Image get(String path) {
+        return get(path, 0);
+    }
+
+    /*
+     * Gets an image scaled to fit a square, keeping its aspect ratio.
+     *
+     * @param path The class path location of the image
+     * @param edge The edge length of the square in pixels, or 0 for the natural size
+     * @return The shared image, possibly still loading
+     */
+    public static Image get(String path, int edge) {
+        String key = edge == 0 ? path : path + "@" + edge;
+        return images.computeIfAbsent(key, k -> new Image(path, edge, edge, true, true, true));
+    }
+
+    /*
+     * Runs an action once an image has finished loading, or right away if it already has.
+     * Progress is reported on the JavaFX application thread, so the action runs there.
+     * An image that fails to load is reported instead and the action is dropped. The
+     * listener removes itself either way: cached images live as long as the process,
+     * and must not keep the action's owner (e.g. an old board) reachable.
+     *
+     * @param image The image to wait for
+     * @param action The action to run
+     */
+    public static void whenLoaded(Image image, Runnable action) {
+        if (image.isError()) {
+            reportError(image);
+            return;
+        }
+        if (image.getProgress() >= 1) {
+            action.run();
+            return;
+        }
+        ChangeListener<Object> listener = new ChangeListener<Object>() {
+            @Override
+            public void changed(ObservableValue<?> observable, Object oldValue, Object newValue) {
+                if (!image.isError() && image.getProgress() < 1) return;
+                image.progressProperty().removeListener(this);
+                image.errorProperty().removeListener(this);
+                if (image.isError()) {
+                    reportError(image);
+                } else {
+                    action.run();
+                }
+            }
+        };
+        image.progressProperty().addListener(listener);
+        image.errorProperty().addListener(listener);
+    }
+
+    /*
+     * Prints why an image could not be loaded.
+     */
+    private static void reportError(Image image) {
+        Exception e = image.getException();
+        System.err.println("Error loading image file: " + image.getUrl() + (e != null ? " (" + e.getMessage() + ")" : ""));
+    }
+}
@@ -0,0 +1,93 @@
+package application;
+
+import java.net.URL;
+
+import javafx.application.Platform;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+/*
+ * Owner of the game's background music.
+ * The track is opened once, on a background thread at startup, and a single MediaPlayer
+ * is reused for every game: play restarts it, stop halts it when a game ends or the
+ * player returns to the menu, and dispose releases the native decoder when the
+ * application exits. Starting any number of games therefore never creates another
+ * player. All methods except load must be called on the JavaFX application thread.
+ */
+public class AudioService {
+    private MediaPlayer player; // The music player, null until loaded or after dispose
+    private boolean playing; // Whether the music should be playing, remembered while loading
+    private boolean disposed; // Whether dispose has been called
+
+    /*
+     * Starts opening a track on a background thread. Errors are reported and leave the
+     * service silent, as a missing track should not stop the game.
+     *
+     * @param resource The class path location of the track
+     */
+    public void load(String resource) {
+        URL url = getClass().getResource(resource);
+        if (url == null) {
+            System.err.println("Error loading media file: " + resource + " not found");
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                MediaPlayer loaded = new MediaPlayer(new Media(url.toExternalForm()));
+                Platform.runLater(() -> attach(loaded));
+            } catch (RuntimeException e) {
+                System.err.println("Error loading media file: " + e.getMessage());
+            }
+        }, "pacmaze-audio-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /*
+     * Plays the music from the start, or as soon as it has loaded.
+     */
+    public void play() {
+        playing = true;
+        if (player != null) {
+            player.stop(); // Rewinds if a previous game's music is still running
+            player.play();
+        }
+    }
+
+    /*
+     * Stops the music; the player stays ready for the next game.
+     */
+    public void stop() {
+        playing = false;
+        if (player != null) {
+            player.stop();
+        }
+    }
+
+    /*
+     * Stops the music for good and releases the player's native resources.
+     */
+    public void dispose() {
+        disposed = true;
+        playing = false;
+        if (player != null) {
+            player.dispose();
+            player = null;
+        }
+    }
+
+    /*
+     * Takes over the player once the background thread has created it.
+     */
+    private void attach(MediaPlayer loaded) {
+        if (disposed) {
+            loaded.dispose();
+            return;
+        }
+        player = loaded;
+        player.setOnError(() -> System.err.println("Error playing media file: " + loaded.getError().getMessage()));
+        if (playing) {
+            player.play();
+        }
+    }
+}
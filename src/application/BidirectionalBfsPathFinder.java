@@ -0,0 +1,186 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Bidirectional breadth-first search for the enemy.
+ * One search grows from the start and one from the goal, always advancing whichever
+ * frontier is smaller by one whole layer. As soon as a layer reaches a cell the other
+ * search has seen, the shortest connection found in that layer is a shortest path. In
+ * corridor mazes A*'s Manhattan heuristic gains little, as corridors rarely lead
+ * straight to the goal; two plain queues then expand a few more cells than A* but in
+ * about half the time, since no heap has to be maintained. Like AStarPathFinder, the
+ * working arrays are allocated once per maze and stamped with a generation counter
+ * instead of being cleared.
+ */
+public class BidirectionalBfsPathFinder implements PathFinder {
+    private final PackedGrid grid; // Maze the searches run on
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+
+    private final int[] seenFromStart; // Generation in which the start search reached each cell
+    private final int[] seenFromGoal; // Generation in which the goal search reached each cell
+    private final int[] distanceFromStart; // Steps from the start to each cell
+    private final int[] distanceFromGoal; // Steps from the goal to each cell
+    private final int[] parent; // Previous cell on the start search's path to each cell
+    private final int[] startQueue; // Queue of the start search
+    private final int[] goalQueue; // Queue of the goal search
+
+    private int generation; // Stamp of the current search
+    private int nodesExpanded; // Number of cells expanded by the last search
+    private int bestLength; // Length of the shortest connection found so far
+    private int meetStart; // Start search's cell of the shortest connection
+    private int meetGoal; // Goal search's cell of the shortest connection
+
+    /*
+     * Constructor for BidirectionalBfsPathFinder.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to search on
+     */
+    public BidirectionalBfsPathFinder(PackedGrid grid) {
+        this.grid = grid;
+        int size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+        int cells = grid.getCellCount();
+        seenFromStart = new int[cells];
+        seenFromGoal = new int[cells];
+        distanceFromStart = new int[cells];
+        distanceFromGoal = new int[cells];
+        parent = new int[cells];
+        startQueue = new int[cells];
+        goalQueue = new int[cells];
+    }
+
+    @Override
+    public int nextStep(int start, int goal) {
+        nodesExpanded = 0;
+        if (start == goal) {
+            bestLength = 0;
+            return goal;
+        }
+        nextGeneration();
+        bestLength = Integer.MAX_VALUE;
+
+        seenFromStart[start] = generation;
+        distanceFromStart[start] = 0;
+        parent[start] = start;
+        startQueue[0] = start;
+        int startHead = 0;
+        int startTail = 1;
+
+        seenFromGoal[goal] = generation;
+        distanceFromGoal[goal] = 0;
+        goalQueue[0] = goal;
+        int goalHead = 0;
+        int goalTail = 1;
+
+        while (startHead < startTail && goalHead < goalTail) {
+            if (startTail - startHead <= goalTail - goalHead) {
+                int layerEnd = startTail;
+                while (startHead < layerEnd) {
+                    startTail = expandFromStart(startQueue[startHead++], startTail);
+                }
+            } else {
+                int layerEnd = goalTail;
+                while (goalHead < layerEnd) {
+                    goalTail = expandFromGoal(goalQueue[goalHead++], goalTail);
+                }
+            }
+            if (bestLength != Integer.MAX_VALUE) break;
+        }
+        if (bestLength == Integer.MAX_VALUE) return -1;
+
+        // Walk the start search's tree back from the meeting point to the first step
+        if (meetStart == start) return meetGoal;
+        int next = meetStart;
+        while (parent[next] != start) {
+            next = parent[next];
+        }
+        return next;
+    }
+
+    @Override
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    @Override
+    public int getPathLength() {
+        return bestLength == Integer.MAX_VALUE ? -1 : bestLength;
+    }
+
+    /*
+     * Expands one cell of the start search, recording connections to the goal search.
+     *
+     * @return The new tail of the start queue
+     */
+    private int expandFromStart(int current, int tail) {
+        nodesExpanded++;
+        int nextDistance = distanceFromStart[current] + 1;
+        int mask = grid.openNeighbours(current);
+        while (mask != 0) {
+            int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+            if (seenFromGoal[neighbor] == generation) {
+                connect(current, neighbor, nextDistance + distanceFromGoal[neighbor]);
+            }
+            if (seenFromStart[neighbor] == generation) continue;
+
+            seenFromStart[neighbor] = generation;
+            distanceFromStart[neighbor] = nextDistance;
+            parent[neighbor] = current;
+            startQueue[tail++] = neighbor;
+        }
+        return tail;
+    }
+
+    /*
+     * Expands one cell of the goal search, recording connections to the start search.
+     *
+     * @return The new tail of the goal queue
+     */
+    private int expandFromGoal(int current, int tail) {
+        nodesExpanded++;
+        int nextDistance = distanceFromGoal[current] + 1;
+        int mask = grid.openNeighbours(current);
+        while (mask != 0) {
+            int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+            if (seenFromStart[neighbor] == generation) {
+                connect(neighbor, current, nextDistance + distanceFromStart[neighbor]);
+            }
+            if (seenFromGoal[neighbor] == generation) continue;
+
+            seenFromGoal[neighbor] = generation;
+            distanceFromGoal[neighbor] = nextDistance;
+            goalQueue[tail++] = neighbor;
+        }
+        return tail;
+    }
+
+    /*
+     * Keeps the shorter of the best connection so far and a new one.
+     *
+     * @param fromStart The cell on the start search's side
+     * @param fromGoal The neighbouring cell on the goal search's side
+     * @param length The length of the whole path through both cells
+     */
+    private void connect(int fromStart, int fromGoal, int length) {
+        if (length < bestLength) {
+            bestLength = length;
+            meetStart = fromStart;
+            meetGoal = fromGoal;
+        }
+    }
+
+    /*
+     * Advances the generation stamp, wiping the stamp arrays on overflow.
+     */
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenFromStart, 0);
+            Arrays.fill(seenFromGoal, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package application;
+
+import java.util.List;
+
+import javafx.scene.Node;
+
+/*
+ * Draws the game board for View.
+ * View decides which cells need repainting; a renderer only knows how to paint one
+ * cell and how to show the path preview. ButtonBoard uses one Button per cell and
+ * suits the small hardcoded maze, CanvasBoard draws everything on a single Canvas
+ * so large mazes do not blow up the scene graph.
+ */
+public interface BoardRenderer {
+    /*
+     * Enumeration of the sprites a cell can show, in drawing priority order.
+     */
+    enum Sprite {
+        NONE, PLAYER, ENEMY, CHEST, CLOCK, FINISH
+    }
+
+    /*
+     * Gets the JavaFX node holding the board, to be placed in the main layout.
+     *
+     * @return The board node
+     */
+    Node getNode();
+
+    /*
+     * Repaints a single cell from the current model state.
+     *
+     * @param model The game model
+     * @param x The row of the cell
+     * @param y The column of the cell
+     */
+    void paintCell(Model model, int x, int y);
+
+    /*
+     * Marks the cells of a path preview, replacing any previous preview.
+     * Cells an enemy could reach in its next turn are marked as dangerous.
+     *
+     * @param path The cells to highlight
+     * @param model The game model, queried for the danger of each cell
+     */
+    void highlightPath(List<Model.Position> path, Model model);
+
+    /*
+     * Removes the path preview.
+     */
+    void clearPathHighlight();
+
+    /*
+     * Determines the sprite to show on a cell: the player and enemies are drawn on
+     * top of items and the finish.
+     *
+     * @param model The game model
+     * @param x The row of the cell
+     * @param y The column of the cell
+     * @return The sprite for the cell
+     */
+    static Sprite spriteAt(Model model, int x, int y) {
+        Model.Player player = model.getPlayer();
+        if (x == player.x && y == player.y) return Sprite.PLAYER;
+        if (model.isEnemyAt(x, y)) return Sprite.ENEMY;
+        switch (model.getGrid().getCell(x, y)) {
+            case CHEST:
+                return Sprite.CHEST;
+            case CLOCK:
+                return Sprite.CLOCK;
+            case FINISH:
+                return Sprite.FINISH;
+            default:
+                return Sprite.NONE;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.GridPane;
+
+/*
+ * Board renderer that shows every cell as a styled Button in a GridPane.
+ * This is the original look of the game and works well for small mazes.
+ */
+public class ButtonBoard implements BoardRenderer {
+    private GridPane gameGrid; // Grid to hold the game board buttons
+    private Button[][] gridButtons; // 2D array of buttons representing the game board
+    private ImageView[][] cellViews; // Reusable sprite view for each cell, created on first use
+    private List<Button> highlightedButtons; // Buttons currently marked as part of the path preview
+    private Image[] spriteImages; // Image for each Sprite, indexed by ordinal
+
+    /*
+     * Constructor for ButtonBoard.
+     *
+     * @param size The width and height of the maze in cells
+     */
+    public ButtonBoard(int size) {
+        // Share the cached sprite images (no image for Sprite.NONE)
+        spriteImages = new Image[] {
+            null,
+            Assets.get(Assets.PLAYER),
+            Assets.get(Assets.ENEMY),
+            Assets.get(Assets.COIN),
+            Assets.get(Assets.CLOCK),
+            Assets.get(Assets.EXIT)
+        };
+
+        // Create and set up the game grid
+        gameGrid = new GridPane();
+        gameGrid.setAlignment(Pos.CENTER);
+
+        // Initialize the 2D array of grid buttons
+        gridButtons = new Button[size][size];
+        cellViews = new ImageView[size][size];
+        highlightedButtons = new ArrayList<>();
+
+        // Create buttons for each cell in the game grid
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                Button btn = new Button();
+                btn.setPrefSize(25, 25);
+                btn.setMinSize(25, 25);
+                btn.setMaxSize(25, 25);
+                btn.setStyle("-fx-background-radius: 0;");  // Make buttons square
+                btn.getStyleClass().add("empty-cell"); // Default style for every cell
+                gridButtons[i][j] = btn;
+                gameGrid.add(btn, j, i);
+            }
+        }
+    }
+
+    @Override
+    public Node getNode() {
+        return gameGrid;
+    }
+
+    @Override
+    public void paintCell(Model model, int i, int j) {
+        Button btn = gridButtons[i][j];
+
+        // Walls never change, so their style only has to be set once
+        if (!model.getGrid().isWalkable(i, j)) {
+            if (!btn.getStyleClass().contains("wall-cell")) {
+                btn.getStyleClass().add("wall-cell");
+            }
+            return;
+        }
+
+        Image image = spriteImages[BoardRenderer.spriteAt(model, i, j).ordinal()];
+        if (image == null) {
+            btn.setGraphic(null);
+            return;
+        }
+
+        // Reuse the cell's image view, creating it the first time the cell shows a sprite
+        ImageView imageView = cellViews[i][j];
+        if (imageView == null) {
+            imageView = new ImageView();
+            imageView.setFitWidth(23);
+            imageView.setFitHeight(23);
+            imageView.setPreserveRatio(true);
+            cellViews[i][j] = imageView;
+        }
+        imageView.setImage(image);
+        btn.setGraphic(imageView);
+    }
+
+    @Override
+    public void highlightPath(List<Model.Position> path, Model model) {
+        clearPathHighlight();  // Clear any existing highlights
+        for (Model.Position pos : path) {
+            Button btn = gridButtons[pos.x][pos.y];
+            btn.getStyleClass().add(model.isThreatened(pos.x, pos.y) ? "danger-cell" : "path-cell");
+            highlightedButtons.add(btn);
+        }
+    }
+
+    @Override
+    public void clearPathHighlight() {
+        for (Button btn : highlightedButtons) {
+            btn.getStyleClass().removeAll("path-cell", "danger-cell");
+        }
+        highlightedButtons.clear();
+    }
+
+    // Getter for the buttons, used by Controller to attach the cell handlers
+    public Button[][] getGridButtons() { return gridButtons; }
+}
@@ -0,0 +1,165 @@
+package application;
+
+import java.util.List;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+
+/*
+ * Board renderer that draws the whole maze on a single Canvas.
+ * The scene graph holds one node no matter how large the maze is, and there is no
+ * per-cell CSS or layout work. Sprites come from the Assets cache pre-scaled to the tile
+ * size, so drawing a cell is a rectangle fill plus at most one unscaled image blit.
+ */
+public class CanvasBoard implements BoardRenderer {
+    // Edge length the board aims for, in pixels
+    private static final double BOARD_PIXELS = 500;
+
+    // Colours matching the empty-cell, wall-cell, path-cell and danger-cell styles in styles.css
+    private static final Color FLOOR_COLOR = Color.WHITE;
+    private static final Color WALL_COLOR = Color.web("#d3d3d3");
+    private static final Color PATH_COLOR = Color.rgb(71, 168, 221, 0.2);
+    private static final Color DANGER_COLOR = Color.rgb(221, 71, 71, 0.3);
+
+    private final int size; // Width and height of the maze in cells
+    private final int tile; // Edge length of one cell in pixels
+    private final Canvas canvas; // Surface the board is drawn on
+    private final GraphicsContext gc; // Drawing context of the canvas
+    private final StackPane container; // Centers the canvas in the layout
+    private final Image[] spriteTiles; // Tile-sized image for each Sprite, indexed by ordinal
+
+    private Model model; // Model from the most recent paint, used to repaint the path preview
+    private int[] highlighted; // Cell indices of the current path preview
+    private int highlightedCount;
+
+    /*
+     * Constructor for CanvasBoard.
+     *
+     * @param size The width and height of the maze in cells
+     */
+    public CanvasBoard(int size) {
+        this.size = size;
+        this.tile = tileSize(size);
+        canvas = new Canvas(tile * size, tile * size);
+        gc = canvas.getGraphicsContext2D();
+        gc.setImageSmoothing(false);
+        container = new StackPane(canvas);
+
+        // Share the sprites decoded at the tile size (no image for Sprite.NONE)
+        spriteTiles = new Image[] {
+            null,
+            Assets.get(Assets.PLAYER, tile),
+            Assets.get(Assets.ENEMY, tile),
+            Assets.get(Assets.COIN, tile),
+            Assets.get(Assets.CLOCK, tile),
+            Assets.get(Assets.EXIT, tile)
+        };
+        // Sprites still loading in the background show up with a repaint once they are done
+        for (int i = 1; i < spriteTiles.length; i++) {
+            if (spriteTiles[i].getProgress() < 1) {
+                Assets.whenLoaded(spriteTiles[i], this::repaintAll);
+            }
+        }
+        highlighted = new int[4];
+    }
+
+    @Override
+    public Node getNode() {
+        return container;
+    }
+
+    @Override
+    public void paintCell(Model model, int x, int y) {
+        this.model = model;
+        drawCell(x, y, null);
+    }
+
+    @Override
+    public void highlightPath(List<Model.Position> path, Model model) {
+        clearPathHighlight();
+        if (highlighted.length < path.size()) {
+            highlighted = new int[path.size()];
+        }
+        for (Model.Position pos : path) {
+            highlighted[highlightedCount++] = pos.x * size + pos.y;
+            drawCell(pos.x, pos.y, model.isThreatened(pos.x, pos.y) ? DANGER_COLOR : PATH_COLOR);
+        }
+    }
+
+    @Override
+    public void clearPathHighlight() {
+        for (int i = 0; i < highlightedCount; i++) {
+            drawCell(highlighted[i] / size, highlighted[i] % size, null);
+        }
+        highlightedCount = 0;
+    }
+
+    /*
+     * Maps a mouse position on the board to a cell.
+     *
+     * @param px The x coordinate relative to the board node
+     * @param py The y coordinate relative to the board node
+     * @return The cell index (row * size + column), or -1 outside the maze
+     */
+    public int cellAt(double px, double py) {
+        // The canvas is centered inside its container
+        double left = (container.getWidth() - canvas.getWidth()) / 2;
+        double top = (container.getHeight() - canvas.getHeight()) / 2;
+        int col = (int) Math.floor((px - left) / tile);
+        int row = (int) Math.floor((py - top) / tile);
+        if (row < 0 || row >= size || col < 0 || col >= size) return -1;
+        return row * size + col;
+    }
+
+    /*
+     * Draws one cell: background, optional path overlay and sprite.
+     *
+     * @param overlay The path preview colour, or null outside the preview
+     */
+    private void drawCell(int x, int y, Color overlay) {
+        if (model == null) return;
+        double px = y * tile;
+        double py = x * tile;
+
+        boolean wall = !model.getGrid().isWalkable(x, y);
+        gc.setFill(wall ? WALL_COLOR : FLOOR_COLOR);
+        gc.fillRect(px, py, tile, tile);
+        if (wall) return;
+
+        if (overlay != null) {
+            gc.setFill(overlay);
+            gc.fillRect(px, py, tile, tile);
+        }
+
+        Image sprite = spriteTiles[BoardRenderer.spriteAt(model, x, y).ordinal()];
+        if (sprite != null) {
+            gc.drawImage(sprite, px, py);
+        }
+    }
+
+    /*
+     * Gets the edge length of one cell for a maze, so sprites can be preloaded at that size.
+     *
+     * @param size The width and height of the maze in cells
+     * @return The tile edge length in pixels
+     */
+    public static int tileSize(int size) {
+        return Math.max(1, (int) (BOARD_PIXELS / size));
+    }
+
+    /*
+     * Redraws every cell from the most recently painted model.
+     */
+    private void repaintAll() {
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                drawCell(x, y, null);
+            }
+        }
+        highlightedCount = 0;
+    }
+}
@@ -0,0 +1,72 @@
+package application;
+
+/*
+ * Player policy that heads for the exit but avoids cells the enemies can reach.
+ * Each turn it looks at the reachable cells within the player's range and asks the
+ * model's danger map, in O(1) per cell, whether an enemy could catch the player there
+ * in its next turn. It takes the safe cell closest to the finish if that gets it
+ * closer, stays put if its own cell is safe, and otherwise flees to the cell the
+ * enemies need the most turns to reach. The finish itself is always safe, since
+ * reaching it ends the game before the enemies move.
+ * Instances keep per-game state and must not be shared between threads.
+ */
+public class CautiousExitPolicy implements PlayerPolicy {
+    private PackedGrid grid; // Grid the distances were computed for
+    private int[] distanceToFinish; // Maze distance from each cell to the finish, -1 if unreachable
+
+    @Override
+    public Model.Position chooseMove(Model model) {
+        if (model.getGrid() != grid) {
+            grid = model.getGrid();
+            distanceToFinish = GreedyExitPolicy.computeDistances(grid, model.getFinish());
+        }
+
+        int size = grid.getSize();
+        int range = model.getParameters().getPlayerRange();
+        Model.Player player = model.getPlayer();
+        Model.Position bestSafe = null;
+        int bestSafeDistance = Integer.MAX_VALUE;
+        Model.Position bestEscape = null;
+        int bestEscapeTurns = -1;
+        int bestEscapeDistance = Integer.MAX_VALUE;
+
+        // Scan every cell within the player's movement range
+        for (int dx = -range; dx <= range; dx++) {
+            for (int dy = -range + Math.abs(dx); dy <= range - Math.abs(dx); dy++) {
+                int x = player.x + dx;
+                int y = player.y + dy;
+                if (x < 0 || x >= size || y < 0 || y >= size) continue;
+                if (dx == 0 && dy == 0) continue;
+
+                int distance = distanceToFinish[x * size + y];
+                if (distance < 0) continue;
+                boolean safe = distance == 0 || !model.isThreatened(x, y);
+                if (safe && distance >= bestSafeDistance) continue;
+                int turns = safe ? 0 : model.getEnemyTurnsTo(x, y);
+                if (!safe && (bestSafe != null || turns < bestEscapeTurns
+                        || (turns == bestEscapeTurns && distance >= bestEscapeDistance))) continue;
+
+                Model.Position target = new Model.Position(x, y);
+                if (!model.isValidMoveTarget(target)) continue;
+                if (safe) {
+                    bestSafe = target;
+                    bestSafeDistance = distance;
+                } else {
+                    bestEscape = target;
+                    bestEscapeTurns = turns;
+                    bestEscapeDistance = distance;
+                }
+            }
+        }
+
+        int here = distanceToFinish[player.x * size + player.y];
+        boolean safeHere = !model.isThreatened(player.x, player.y);
+        if (bestSafe != null && (bestSafeDistance < here || !safeHere)) {
+            return bestSafe;
+        }
+        if (safeHere) {
+            return null; // Wait for the enemies to move instead of retreating
+        }
+        return bestEscape;
+    }
+}
@@ -0,0 +1,100 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Set of grid cells whose contents changed since the view last repainted.
+ * Model adds every cell a sprite leaves or enters and every cell whose item is
+ * collected; View repaints just those cells and then clears the set. Cells are stored
+ * as int indices (x * size + y) in a small growable list, with one bit per cell to skip
+ * duplicates. A turn changes a handful of cells, so once more than an eighth of the
+ * grid has changed the set gives up on single cells and asks for a full repaint; the
+ * list never grows past that, and a model nobody paints (a simulation or a server game)
+ * costs one bit per cell.
+ */
+public class CellChangeSet {
+    private static final int INITIAL_CAPACITY = 16; // Starting length of the cell list
+
+    private final long[] marked; // One bit per cell, set while the cell is in the list
+    private final int limit; // Most cells listed before falling back to a full repaint
+    private int[] cells = new int[INITIAL_CAPACITY]; // Changed cell indices, in insertion order
+    private int count; // Number of changed cells
+    private boolean all; // Whether every cell must be repainted
+
+    /*
+     * Constructor for CellChangeSet.
+     * A new set starts out marked as "everything changed", so the first repaint is a full one.
+     *
+     * @param cellCount The number of cells in the grid
+     */
+    public CellChangeSet(int cellCount) {
+        marked = new long[(cellCount + 63) >>> 6];
+        limit = Math.max(INITIAL_CAPACITY, cellCount / 8);
+        all = true;
+    }
+
+    /*
+     * Records a changed cell. Adding a cell twice has no effect.
+     *
+     * @param cell The index of the changed cell
+     */
+    public void add(int cell) {
+        if (all || (marked[cell >>> 6] & (1L << cell)) != 0) return;
+        if (count == limit) {
+            all = true;
+            return;
+        }
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, Math.min(limit, count * 2));
+        }
+        marked[cell >>> 6] |= 1L << cell;
+        cells[count++] = cell;
+    }
+
+    /*
+     * Marks the whole grid as changed, e.g. after a change that is not tracked per cell.
+     */
+    public void addAll() {
+        all = true;
+    }
+
+    /*
+     * Checks whether the whole grid has to be repainted.
+     *
+     * @return true if every cell is considered changed
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /*
+     * Gets the number of individually recorded cells.
+     *
+     * @return The number of changed cells
+     */
+    public int size() {
+        return count;
+    }
+
+    /*
+     * Gets a recorded cell.
+     *
+     * @param i The position in the set, between 0 and size() - 1
+     * @return The cell index
+     */
+    public int get(int i) {
+        return cells[i];
+    }
+
+    /*
+     * Empties the set once the changes have been painted.
+     */
+    public void clear() {
+        // Only the listed cells have their bit set
+        for (int i = 0; i < count; i++) {
+            marked[cells[i] >>> 6] &= ~(1L << cells[i]);
+        }
+        count = 0;
+        all = false;
+    }
+}
@@ -1,5 +1,6 @@
 package application;
 
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.input.KeyCode;
 
@@ -13,6 +14,14 @@ public class Controller {
     private View view;
     // Callback function to return to the main menu
     private Consumer<Void> onBackToMenu;
+    // Cell under the mouse on the canvas board, -1 if none
+    private int hoveredCell = -1;
+    // Reused command buffer for playing a turn
+    private final TurnBatch turn = new TurnBatch();
+    // Called once the game has been won or lost, e.g. to stop the music
+    private Runnable onGameEnd = () -> { };
+    // Called when an undo takes the game back out of its ending, e.g. to restart the music
+    private Runnable onGameResumed = () -> { };
 
     /*
      * Constructor for the Controller class.
@@ -38,24 +47,52 @@ public class Controller {
         
         // Get the grid buttons from the view
         Button[][] gridButtons = view.getGridButtons();
-        // Set up event handlers for each grid button
-        for (int i = 0; i < Model.SIZE; i++) {
-            for (int j = 0; j < Model.SIZE; j++) {
-                final int row = i;
-                final int col = j;
-                // Set click event handler
-                gridButtons[i][j].setOnAction(e -> handleGridClick(row, col));
-                // Set mouse enter event handler for hover effect
-                gridButtons[i][j].setOnMouseEntered(e -> handleMouseEnter(row, col));
-                // Set mouse exit event handler to clear hover effect
-                gridButtons[i][j].setOnMouseExited(e -> handleMouseExit());
+        if (gridButtons != null) {
+            // Set up event handlers for each grid button
+            for (int i = 0; i < model.getSize(); i++) {
+                for (int j = 0; j < model.getSize(); j++) {
+                    final int row = i;
+                    final int col = j;
+                    // Set click event handler
+                    gridButtons[i][j].setOnAction(e -> handleGridClick(row, col));
+                    // Set mouse enter event handler for hover effect
+                    gridButtons[i][j].setOnMouseEntered(e -> handleMouseEnter(row, col));
+                    // Set mouse exit event handler to clear hover effect
+                    gridButtons[i][j].setOnMouseExited(e -> handleMouseExit());
+                }
             }
+        } else {
+            // Canvas board: map mouse coordinates to cells ourselves
+            Node board = view.getBoardNode();
+            board.setOnMouseClicked(e -> {
+                int cell = view.cellAt(e.getX(), e.getY());
+                if (cell >= 0) {
+                    handleGridClick(cell / model.getSize(), cell % model.getSize());
+                }
+            });
+            board.setOnMouseMoved(e -> {
+                int cell = view.cellAt(e.getX(), e.getY());
+                // Only react when the pointer moves onto a different cell
+                if (cell != hoveredCell) {
+                    hoveredCell = cell;
+                    handleMouseExit();
+                    if (cell >= 0) {
+                        handleMouseEnter(cell / model.getSize(), cell % model.getSize());
+                    }
+                }
+            });
+            board.setOnMouseExited(e -> {
+                hoveredCell = -1;
+                handleMouseExit();
+            });
         }
 
-        // Add key press event handler for backspace (to undo moves)
+        // Add key press event handlers for backspace (to undo turns) and R (to redo them)
         view.getMainLayout().setOnKeyPressed(event -> {
             if (event.getCode() == KeyCode.BACK_SPACE) {
-                undoPlayerMove();
+                undoTurn();
+            } else if (event.getCode() == KeyCode.R) {
+                redoTurn();
             }
         });
 
@@ -69,13 +106,19 @@ public class Controller {
      * @param col column of the clicked button
      */
     private void handleGridClick(int row, int col) {
-        Model.Position clickedPosition = new Model.Position(row, col);
-        // Attempt to move the player to the clicked position
-        if (model.movePlayerToPosition(clickedPosition)) {
-            // Update the view if the move was successful
+        // Play the player's move to the clicked position and the enemy's reply as one turn
+        turn.clear();
+        turn.moveTo(model, row, col);
+        if (turn.playOn(model) > 0 && (TurnBatch.flags(turn.getResult(0)) & TurnBatch.MOVED) != 0) {
+            // Repaint both moves at once if the move was successful
             view.update(model);
-            // End the player's turn
-            endTurn();
+            // Clear any highlighted paths
+            view.clearPathHighlight();
+            
+            // Check for game over or win conditions
+            if (isGameEnded()) {
+                onGameEnd.run();
+            }
         }
     }
 
@@ -91,7 +134,7 @@ public class Controller {
             // Calculate the path to the hovered position
             List<Model.Position> path = model.calculatePathTo(hoverPosition);
             // Highlight the calculated path
-            view.highlightPath(path);
+            view.highlightPath(path, model);
         }
     }
 
@@ -104,30 +147,59 @@ public class Controller {
     }
 
     /*
-     * Ends the player's turn and processes the enemy's turn.
+     * Sets the action to run when a turn ends the game.
+     * @param onGameEnd The action to run
      */
-    private void endTurn() {
-        // Move the enemy
-        model.moveEnemy();
-        // Update the view after enemy movement
-        view.update(model);
-        // Clear any highlighted paths
-        view.clearPathHighlight();
-        
-        // Check for game over or win conditions
-//        if (model.isGameOver() || model.isGameWon()) {
-//        }
+    public void setOnGameEnd(Runnable onGameEnd) {
+        this.onGameEnd = onGameEnd;
+    }
+
+    /*
+     * Sets the action to run when an undo takes back the turn that ended the game.
+     * @param onGameResumed The action to run
+     */
+    public void setOnGameResumed(Runnable onGameResumed) {
+        this.onGameResumed = onGameResumed;
     }
 
     /*
-     * Undoes the player's last move.
+     * Undoes the last turn, including the enemy's move.
      */
-    public void undoPlayerMove() {
-        // Attempt to undo the player's move
-        if (model.undoPlayerMove()) {
+    public void undoTurn() {
+        boolean wasEnded = isGameEnded();
+        // Attempt to undo the turn
+        if (model.undoTurn()) {
             // Update the view if the undo was successful
             view.update(model);
+            // Undoing the final turn puts the game back in play
+            if (wasEnded && !isGameEnded()) {
+                onGameResumed.run();
+            }
         }
     }
+
+    /*
+     * Redoes the last undone turn.
+     */
+    public void redoTurn() {
+        boolean wasEnded = isGameEnded();
+        // Attempt to redo the turn
+        if (model.redoTurn()) {
+            // Update the view if the redo was successful
+            view.update(model);
+            // Redoing the final turn ends the game again
+            if (!wasEnded && isGameEnded()) {
+                onGameEnd.run();
+            }
+        }
+    }
+
+    /*
+     * Checks whether the game has been won or lost.
+     * @return true if the game has ended
+     */
+    public boolean isGameEnded() {
+        return model.isGameOver() || model.isGameWon();
+    }
     
 }
\ No newline at end of file
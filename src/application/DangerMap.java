@@ -0,0 +1,112 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Distance from the nearest enemy to every reachable cell.
+ * One breadth-first search is run outwards from all enemy cells at once, so a single
+ * pass covers any number of enemies; afterwards the number of enemy turns needed to
+ * reach a cell is answered in O(1), taking into account that the enemies move one step
+ * per turn while slowed and several otherwise. Like FlowField, the working arrays are
+ * allocated once per maze and stamped with a generation counter instead of being cleared.
+ */
+public class DangerMap {
+    private final PackedGrid grid; // Maze the map is computed on
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+
+    private final int[] distance; // Steps from the nearest enemy to each cell
+    private final int[] seen; // Generation in which distance was written
+    private final int[] queue; // Breadth-first search queue of cell indices
+
+    private int generation; // Stamp of the current map
+
+    /*
+     * Constructor for DangerMap.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to compute maps on
+     */
+    public DangerMap(PackedGrid grid) {
+        this.grid = grid;
+        int size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+        int cells = grid.getCellCount();
+        distance = new int[cells];
+        seen = new int[cells];
+        queue = new int[cells];
+    }
+
+    /*
+     * Computes the distance from the nearest enemy to every cell an enemy can reach.
+     *
+     * @param enemies The enemies, each a source of the search
+     */
+    public void compute(List<? extends Model.Position> enemies) {
+        nextGeneration();
+        int size = grid.getSize();
+
+        int head = 0;
+        int tail = 0;
+        for (Model.Position enemy : enemies) {
+            int cell = enemy.x * size + enemy.y;
+            if (seen[cell] == generation) continue; // Several enemies on one cell count once
+            seen[cell] = generation;
+            distance[cell] = 0;
+            queue[tail++] = cell;
+        }
+
+        while (head < tail) {
+            int current = queue[head++];
+            int nextDistance = distance[current] + 1;
+
+            int mask = grid.openNeighbours(current);
+            while (mask != 0) {
+                int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+                mask &= mask - 1;
+                if (seen[neighbor] == generation) continue;
+
+                seen[neighbor] = generation;
+                distance[neighbor] = nextDistance;
+                queue[tail++] = neighbor;
+            }
+        }
+    }
+
+    /*
+     * Gets the number of steps from the nearest enemy to a cell.
+     *
+     * @param cell The cell index
+     * @return The step count, or -1 if no enemy can reach the cell
+     */
+    public int stepsTo(int cell) {
+        return seen[cell] == generation ? distance[cell] : -1;
+    }
+
+    /*
+     * Gets the number of enemy turns until an enemy could stand on a cell.
+     * While slowed the enemies take one step per turn, otherwise `speed` steps, so with
+     * s slowed turns left a cell d steps away is reached after d turns if d <= s, and
+     * after s + ceil((d - s) / speed) turns otherwise.
+     *
+     * @param cell The cell index
+     * @param slowedTurns The number of enemy turns that are still slowed
+     * @param speed The number of steps per turn when not slowed
+     * @return 0 if an enemy is on the cell, the turn count, or -1 if no enemy can reach it
+     */
+    public int turnsTo(int cell, int slowedTurns, int speed) {
+        int steps = stepsTo(cell);
+        if (steps <= slowedTurns) return steps;
+        return slowedTurns + (steps - slowedTurns + speed - 1) / speed;
+    }
+
+    /*
+     * Advances the generation stamp, wiping the stamp array on overflow.
+     */
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            generation = 1;
+        }
+    }
+}
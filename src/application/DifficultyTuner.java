@@ -0,0 +1,225 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/*
+ * Monte-Carlo difficulty tuner.
+ * For every point of a grid of GameParameters it plays a large batch of headless games
+ * with a bot policy and reports the win rate, the mean number of turns and the
+ * distribution of final scores. The games of a point are spread over all cores with a
+ * parallel stream; each worker thread keeps its own policy, and the per-game results
+ * are folded into per-thread tallies that are merged at the end, so no state is shared
+ * while games run. Game i of every point is played with seed i, so points are compared
+ * on the same mazes and item layouts, and runs are repeatable.
+ */
+public class DifficultyTuner {
+    /*
+     * Outcome statistics of one parameter point.
+     */
+    public static class Report {
+        private final GameParameters parameters; // The settings the games were played with
+        private final int[] chestCounts; // Number of games ending with each number of chests collected
+        private int games; // Number of games played
+        private int won; // Number of games won
+        private int lost; // Number of games lost
+        private long totalTurns; // Turns played over all games
+
+        /*
+         * Constructor for an empty Report.
+         *
+         * @param parameters The settings the games are played with
+         */
+        Report(GameParameters parameters) {
+            this.parameters = parameters;
+            chestCounts = new int[parameters.getChests() + 1];
+        }
+
+        /*
+         * Adds the result of one game.
+         */
+        void add(GameResult result) {
+            games++;
+            if (result.getOutcome() == GameResult.Outcome.WON) won++;
+            else if (result.getOutcome() == GameResult.Outcome.LOST) lost++;
+            totalTurns += result.getTurns();
+            chestCounts[Math.min(result.getScore() / Model.CHEST_SCORE, chestCounts.length - 1)]++;
+        }
+
+        /*
+         * Adds all games of another report for the same settings.
+         */
+        void addAll(Report other) {
+            games += other.games;
+            won += other.won;
+            lost += other.lost;
+            totalTurns += other.totalTurns;
+            for (int i = 0; i < chestCounts.length; i++) {
+                chestCounts[i] += other.chestCounts[i];
+            }
+        }
+
+        // Getter methods for accessing private fields
+        public GameParameters getParameters() { return parameters; }
+        public int getGames() { return games; }
+        public int getWon() { return won; }
+        public int getLost() { return lost; }
+        public int getUnfinished() { return games - won - lost; }
+        public double getWinRate() { return games == 0 ? 0 : (double) won / games; }
+        public double getMeanTurns() { return games == 0 ? 0 : (double) totalTurns / games; }
+
+        /*
+         * Gets the number of games that ended with a given score.
+         *
+         * @param score The score, a multiple of Model.CHEST_SCORE
+         * @return The number of games
+         */
+        public int getScoreCount(int score) {
+            int chests = score / Model.CHEST_SCORE;
+            return score % Model.CHEST_SCORE != 0 || chests < 0 || chests >= chestCounts.length ? 0 : chestCounts[chests];
+        }
+
+        /*
+         * Gets the mean final score.
+         *
+         * @return The mean score, 0 if no games were played
+         */
+        public double getMeanScore() {
+            long total = 0;
+            for (int i = 0; i < chestCounts.length; i++) {
+                total += (long) i * Model.CHEST_SCORE * chestCounts[i];
+            }
+            return games == 0 ? 0 : (double) total / games;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder scores = new StringBuilder();
+            for (int i = 0; i < chestCounts.length; i++) {
+                scores.append(' ').append(i * Model.CHEST_SCORE).append(':').append(chestCounts[i]);
+            }
+            return String.format("%s  win %5.1f%%  lost %5.1f%%  turns %6.1f  score %5.1f  [%s ]",
+                parameters, 100.0 * getWinRate(), 100.0 * lost / Math.max(1, games), getMeanTurns(),
+                getMeanScore(), scores.toString().trim());
+        }
+    }
+
+    /*
+     * Plays a batch of games with one set of parameters on all cores, a single enemy on a
+     * generated maze searching with the default incremental search.
+     *
+     * @param parameters The settings to play with
+     * @param size The maze size, or 0 for the hardcoded maze
+     * @param games The number of games to play
+     * @param policyFactory Creates one policy per worker thread
+     * @param maxTurns The number of turns after which a game is abandoned
+     * @return The statistics of the batch
+     */
+    public static Report evaluate(GameParameters parameters, int size, int games,
+            Supplier<? extends PlayerPolicy> policyFactory, int maxTurns) {
+        return evaluate(parameters, size, games, policyFactory, maxTurns, PathFinder.Strategy.INCREMENTAL);
+    }
+
+    /*
+     * Plays a batch of games with one set of parameters on all cores.
+     *
+     * @param parameters The settings to play with
+     * @param size The maze size, or 0 for the hardcoded maze
+     * @param games The number of games to play
+     * @param policyFactory Creates one policy per worker thread
+     * @param maxTurns The number of turns after which a game is abandoned
+     * @param strategy The single enemy's search on a generated maze
+     * @return The statistics of the batch
+     */
+    public static Report evaluate(GameParameters parameters, int size, int games,
+            Supplier<? extends PlayerPolicy> policyFactory, int maxTurns, PathFinder.Strategy strategy) {
+        ThreadLocal<PlayerPolicy> policies = ThreadLocal.withInitial(policyFactory::get);
+        return IntStream.range(0, games).parallel()
+            .mapToObj(game -> Simulation.playGame(newGame(parameters, size, game, strategy), policies.get(), maxTurns))
+            .collect(() -> new Report(parameters), Report::add, Report::addAll);
+    }
+
+    /*
+     * Expands parameter ranges into the grid of all their combinations.
+     * Each range has the form name=v1,v2,... with a name accepted by GameParameters.with;
+     * settings without a range keep their value from the base parameters.
+     *
+     * @param base The settings every point starts from
+     * @param ranges The ranges to combine
+     * @return The parameter points, varying the last range fastest
+     * @throws IllegalArgumentException if a range is malformed or a value out of range
+     */
+    public static List<GameParameters> grid(GameParameters base, String... ranges) {
+        List<GameParameters> points = new ArrayList<>(List.of(base));
+        for (String range : ranges) {
+            int equals = range.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected name=v1,v2,... but got " + range);
+            }
+            String name = range.substring(0, equals);
+            int[] values = Arrays.stream(range.substring(equals + 1).split(","))
+                .mapToInt(Integer::parseInt).toArray();
+            List<GameParameters> expanded = new ArrayList<>();
+            for (GameParameters point : points) {
+                for (int value : values) {
+                    expanded.add(point.with(name, value));
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+
+    /*
+     * Creates game number `game` of a batch. Generated mazes are played without a
+     * routing table, since each game has its own maze and searching is far cheaper than
+     * building the table for one game. A single enemy searches with the given strategy;
+     * plain A* has work arrays about two thirds the size of the incremental search's
+     * (7 ints per cell against 11) if the games in flight across the workers must stay small.
+     */
+    private static Model newGame(GameParameters parameters, int size, int game, PathFinder.Strategy strategy) {
+        if (size == 0) {
+            return new Model((long) game, parameters);
+        }
+        Model model = new Model(size, game, parameters);
+        model.setRoutingTableEnabled(false);
+        model.setPathFinderStrategy(strategy);
+        return model;
+    }
+
+    /*
+     * Command line entry point: evaluates a grid of parameter points and prints one line
+     * per point.
+     * Usage: DifficultyTuner [games per point] [maze size] [name=v1,v2,...]...
+     * Maze size 0 (the default) is the hardcoded maze. Names are lives, chests, clocks,
+     * slowed, speed, range and enemies; for example "lives=2,3 speed=1,2" evaluates four
+     * points, all other settings at their defaults. Games use the greedy exit policy, or
+     * CautiousExitPolicy with -Dpacmaze.policy=cautious, and run on all cores of the
+     * common fork/join pool. On a generated maze a single enemy uses the incremental
+     * search, or with -Dpacmaze.pathfinder=<strategy> (a_star, bidirectional_bfs or
+     * jump_point) another one.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        String[] ranges = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[0];
+        List<GameParameters> points = grid(GameParameters.DEFAULT, ranges);
+
+        Supplier<PlayerPolicy> policyFactory = "cautious".equals(System.getProperty("pacmaze.policy"))
+            ? CautiousExitPolicy::new : GreedyExitPolicy::new;
+        PathFinder.Strategy strategy = PathFinder.Strategy.valueOf(
+            System.getProperty("pacmaze.pathfinder", "incremental").toUpperCase(Locale.ROOT));
+
+        System.out.printf("%d points x %d games on %s maze, %d cores%n", points.size(), games,
+            size == 0 ? "the hardcoded" : size + "x" + size, Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        for (GameParameters point : points) {
+            System.out.println(evaluate(point, size, games, policyFactory, Simulation.DEFAULT_MAX_TURNS, strategy));
+        }
+        System.out.printf("Finished in %.2f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
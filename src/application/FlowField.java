@@ -0,0 +1,144 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Shared distance field for many enemies chasing the same player.
+ * One breadth-first search is run outwards from the player's cell per enemy turn, and
+ * every enemy then steps to a neighbour one step closer to the player. The search stops
+ * as soon as the cells of all enemies have been reached, so a turn costs at most
+ * O(cells + enemies) however many enemies there are. Like AStarPathFinder, the working
+ * arrays are allocated once per maze and stamped with a generation counter instead of
+ * being cleared.
+ */
+public class FlowField {
+    private final PackedGrid grid; // Maze the field is computed on
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+
+    private final int[] distance; // Steps from each cell to the goal
+    private final int[] seen; // Generation in which distance was written
+    private final int[] target; // Generation in which the cell was marked as holding an enemy
+    private final int[] queue; // Breadth-first search queue of cell indices
+
+    private int generation; // Stamp of the current field
+    private int cellsVisited; // Number of cells reached by the last computation
+
+    /*
+     * Constructor for FlowField.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to compute fields on
+     */
+    public FlowField(PackedGrid grid) {
+        this.grid = grid;
+        int size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+        int cells = grid.getCellCount();
+        distance = new int[cells];
+        seen = new int[cells];
+        target = new int[cells];
+        queue = new int[cells];
+    }
+
+    /*
+     * Computes the distance to the goal for every cell up to the farthest enemy.
+     *
+     * @param goal The cell index the enemies are chasing
+     * @param enemies The enemies whose next steps will be asked for
+     */
+    public void compute(int goal, List<? extends Model.Position> enemies) {
+        nextGeneration();
+        int size = grid.getSize();
+
+        // Mark the enemy cells; several enemies on one cell count once
+        int remaining = 0;
+        for (Model.Position enemy : enemies) {
+            int cell = enemy.x * size + enemy.y;
+            if (target[cell] != generation) {
+                target[cell] = generation;
+                remaining++;
+            }
+        }
+
+        int head = 0;
+        int tail = 0;
+        seen[goal] = generation;
+        distance[goal] = 0;
+        queue[tail++] = goal;
+        if (target[goal] == generation) remaining--;
+
+        // Every cell one step closer than a reached enemy is already in the field when the
+        // last enemy is found, so stopping there leaves all of their next steps available
+        while (head < tail && remaining > 0) {
+            int current = queue[head++];
+            int nextDistance = distance[current] + 1;
+
+            int mask = grid.openNeighbours(current);
+            while (mask != 0) {
+                int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+                mask &= mask - 1;
+                if (seen[neighbor] == generation) continue;
+
+                seen[neighbor] = generation;
+                distance[neighbor] = nextDistance;
+                queue[tail++] = neighbor;
+                if (target[neighbor] == generation) remaining--;
+            }
+        }
+        cellsVisited = tail;
+    }
+
+    /*
+     * Finds the next step from a cell towards the goal of the last computed field.
+     * Only valid for enemy cells passed to compute and the cells they step through.
+     *
+     * @param cell The cell index to move from
+     * @return The cell index of the next step, the cell itself if it is the goal,
+     *         or -1 if the goal is unreachable from it
+     */
+    public int nextStep(int cell) {
+        if (seen[cell] != generation) return -1;
+        int stepDistance = distance[cell] - 1;
+        if (stepDistance < 0) return cell;
+
+        int mask = grid.openNeighbours(cell);
+        while (mask != 0) {
+            int neighbor = cell + offsets[Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+            if (seen[neighbor] == generation && distance[neighbor] == stepDistance) return neighbor;
+        }
+        return -1;
+    }
+
+    /*
+     * Gets the distance from a cell to the goal of the last computed field.
+     * Only valid for the cells nextStep is valid for.
+     *
+     * @param cell The cell index
+     * @return The number of steps to the goal, or -1 if the cell was not reached
+     */
+    public int distanceTo(int cell) {
+        return seen[cell] == generation ? distance[cell] : -1;
+    }
+
+    /*
+     * Gets the number of cells reached by the most recent computation.
+     *
+     * @return The visited cell count
+     */
+    public int getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /*
+     * Advances the generation stamp, wiping the stamp arrays on overflow.
+     */
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(target, 0);
+            generation = 1;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Load-testing client for GameServer.
+ * Opens many connections at once and plays one game on each with the greedy exit
+ * policy. Every game is also played on a local Model created from the same seed, and
+ * each STATE line from the server is compared with the local game's, so the run checks
+ * that the server computes exactly what a local game would.
+ */
+public class GameClient {
+    private final AtomicInteger turns = new AtomicInteger(); // Turns played over all connections
+    private final AtomicInteger mismatches = new AtomicInteger(); // Responses that differed from the local game
+    private final AtomicInteger requests = new AtomicInteger(); // Requests sent over all connections
+    private final AtomicLong requestNanos = new AtomicLong(); // Total time spent waiting for responses
+
+    /*
+     * Plays one game over its own connection.
+     *
+     * @param port The server port on the loopback address
+     * @param size The maze size, or 0 for the hardcoded maze
+     * @param enemies The number of enemies on a generated maze
+     * @param seed The game's seed
+     * @param batchSize The number of turns sent per request; above 1 they go in one TURNS
+     *        command, followed by a STATE request to check the result
+     * @throws IOException if the connection fails
+     */
+    void playGame(int port, int size, int enemies, long seed, int batchSize) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String reply = request(in, out, "NEW " + size + " " + enemies + " " + seed);
+            if (!reply.equals("OK " + seed)) {
+                throw new IOException("Unexpected reply to NEW: " + reply);
+            }
+
+            Model local = GameServer.newGame(size, enemies, seed, GameServer.DEFAULT_STRATEGY);
+            PlayerPolicy policy = new GreedyExitPolicy();
+            StringBuilder batch = new StringBuilder();
+            int turn = 0;
+            while (turn < Simulation.DEFAULT_MAX_TURNS && !local.isGameWon() && !local.isGameOver()) {
+                // Plan the next turns on the local game, which the server must then agree with
+                batch.setLength(0);
+                int batched = 0;
+                while (batched < batchSize && turn < Simulation.DEFAULT_MAX_TURNS && !local.isGameWon() && !local.isGameOver()) {
+                    Model.Position target = policy.chooseMove(local);
+                    if (target != null && local.movePlayerToPosition(target)) {
+                        batch.append(batchSize == 1 ? "MOVE " + target.x + " " + target.y : " " + target.x + "," + target.y);
+                    } else {
+                        batch.append(batchSize == 1 ? "PASS" : " P");
+                    }
+                    local.moveEnemy();
+                    batched++;
+                    turn++;
+                }
+
+                String state;
+                if (batchSize == 1) {
+                    state = request(in, out, batch.toString());
+                } else {
+                    String played = request(in, out, "TURNS" + batch);
+                    state = played.startsWith("TURNS " + batched + " ") ? request(in, out, "STATE") : played;
+                }
+                if (!state.equals(GameServer.describe(local))) {
+                    mismatches.incrementAndGet();
+                    break;
+                }
+                turns.addAndGet(batched);
+            }
+            request(in, out, "QUIT");
+        }
+    }
+
+    /*
+     * Sends one command and waits for its single-line response.
+     */
+    private String request(BufferedReader in, Writer out, String command) throws IOException {
+        long start = System.nanoTime();
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        requestNanos.addAndGet(System.nanoTime() - start);
+        requests.incrementAndGet();
+        if (reply == null) {
+            throw new IOException("Server closed the connection");
+        }
+        return reply;
+    }
+
+    /*
+     * Command line entry point: plays a game on each of many concurrent connections and
+     * prints the throughput, mean response time and number of mismatched responses.
+     * Usage: GameClient [port] [connections] [maze size] [enemies] [turns per request]
+     * A maze size of 0 (the default) plays on the hardcoded maze; connection i uses seed i.
+     * A TURNS line must fit in GameServer.MAX_LINE_LENGTH, which allows a few hundred
+     * turns per request on the largest mazes.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int enemies = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        GameClient client = new GameClient();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = GameServer.newConnectionExecutor();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> games = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                long seed = i;
+                games.add(executor.submit(() -> {
+                    try {
+                        client.playGame(port, size, enemies, seed, batchSize);
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        System.err.println("Game " + seed + " failed: " + e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> game : games) {
+                game.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int turns = client.turns.get();
+        System.out.printf("%d connections, %d turns in %.2f s (%.0f turns/s)%n", connections, turns, seconds, turns / seconds);
+        System.out.printf("  mean response %.1f us%n", client.requestNanos.get() / 1e3 / Math.max(1, client.requests.get()));
+        System.out.printf("  mismatched    %d%n  failed        %d%n", client.mismatches.get(), failed.get());
+    }
+}
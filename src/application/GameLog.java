@@ -0,0 +1,231 @@
+package application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * Append-only record of every change Model makes to a game.
+ * Each event is one byte: the event type in the high four bits and a small payload
+ * (a movement direction or a flag) in the low four bits. Only an enemy step in a game
+ * with several enemies is followed by the enemy's index as a variable-length integer.
+ * Positions are never stored: every step is relative to the mover's current cell, and
+ * item pickups, collisions and timers are implied by the game rules. Together with the
+ * header (maze, seed and game parameters) the log replays the game exactly, typically in a
+ * few hundred bytes; see GameReplayer.
+ * Recording is off by default, so games nobody replays (the UI, servers, benchmarks and
+ * plain simulations) only count their turns; it has to be switched on before the game's
+ * first event, since a log that misses the start cannot be replayed.
+ */
+public class GameLog {
+    // Format version written at the start of every serialized log
+    public static final int VERSION = 3;
+
+    // Event types, stored in the high four bits of an event byte
+    static final int PLAYER_STEP = 0; // Payload: direction
+    static final int CHEST = 1; // Chest collected on the player's cell
+    static final int CLOCK = 2; // Clock activated on the player's cell
+    static final int ENEMY_STEP = 3; // Payload: direction; followed by the enemy index if there are several
+    static final int COLLISION = 4; // An enemy caught the player
+    static final int TURN_END = 5; // An enemy turn finished; payload: SLOW_TICK if the slow timer counted down
+    static final int GAME_END = 6; // Payload: WON if the player reached the finish
+    static final int UNDO = 7; // The most recent turn was taken back
+    static final int REDO = 8; // The most recently undone turn was played again
+    static final int END_OF_LOG = 15; // Terminates a serialized log
+
+    // Payload bits
+    static final int SLOW_TICK = 1;
+    static final int WON = 1;
+
+    // Movement directions (right, down, left, up), indexed by the direction payload
+    static final int[] DX = {0, 1, 0, -1};
+    static final int[] DY = {1, 0, -1, 0};
+
+    private final boolean hardcoded; // Whether the game is on the hardcoded maze
+    private final int size; // Width and height of the maze
+    private final long seed; // Seed the game was created with
+    private final GameParameters parameters; // Difficulty settings of the game
+    private final int enemyCount; // Number of enemies
+    private byte[] events; // Encoded events
+    private int length; // Number of bytes used in events
+    private int turns; // Number of TURN_END events, counted whether or not events are recorded
+    private boolean recording; // Whether events are stored
+    private boolean started; // Whether any event has happened, recorded or not
+
+    /*
+     * Constructor for GameLog.
+     * The arguments identify the initial state the events are applied to.
+     *
+     * @param hardcoded Whether the game is on the hardcoded maze
+     * @param size The width and height of the maze
+     * @param seed The seed the game was created with
+     * @param parameters The difficulty settings of the game
+     */
+    public GameLog(boolean hardcoded, int size, long seed, GameParameters parameters) {
+        this.hardcoded = hardcoded;
+        this.size = size;
+        this.seed = seed;
+        this.parameters = parameters;
+        this.enemyCount = parameters.getEnemyCount();
+        events = new byte[0];
+    }
+
+    /*
+     * Switches the storing of events on or off. Switching it off drops the events stored
+     * so far, as they would no longer describe the whole game.
+     *
+     * @param on true to store every following event
+     * @throws IllegalStateException if recording is switched on after the game's first event
+     */
+    void setRecording(boolean on) {
+        if (on && !recording && started) {
+            throw new IllegalStateException("A game can only be recorded from its start");
+        }
+        recording = on;
+        if (!on) {
+            length = 0;
+        }
+    }
+
+    /*
+     * Appends an event.
+     *
+     * @param type The event type
+     * @param payload The payload, 0 to 15
+     */
+    void append(int type, int payload) {
+        started = true;
+        if (type == TURN_END) turns++;
+        if (!recording) return;
+        ensureCapacity(1);
+        events[length++] = (byte) (type << 4 | payload);
+    }
+
+    /*
+     * Appends an enemy step, with the enemy's index when the game has several enemies.
+     *
+     * @param enemy The index of the enemy
+     * @param direction The direction of the step
+     */
+    void appendEnemyStep(int enemy, int direction) {
+        append(ENEMY_STEP, direction);
+        if (recording && enemyCount > 1) {
+            ensureCapacity(5);
+            length = putVarInt(events, length, enemy);
+        }
+    }
+
+    /*
+     * Writes the header, all events and an end marker to a stream.
+     * Logs written one after another can be read back by a single GameReplayer.
+     *
+     * @param out The stream to write to
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if the game was not recorded
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (!recording) {
+            throw new IllegalStateException("Game was not recorded");
+        }
+        byte[] header = new byte[(3 + GameParameters.SNAPSHOT_INTS) * 5 + 10];
+        int headerLength = putVarInt(header, 0, VERSION);
+        headerLength = putVarInt(header, headerLength, hardcoded ? 1 : 0);
+        headerLength = putVarInt(header, headerLength, size);
+        headerLength = putVarLong(header, headerLength, seed);
+        for (int value : parameters.toArray()) { // Ends with the enemy count
+            headerLength = putVarInt(header, headerLength, value);
+        }
+        out.write(header, 0, headerLength);
+        out.write(events, 0, length);
+        out.write(END_OF_LOG << 4);
+    }
+
+    /*
+     * Gets the number of bytes writeSnapshot produces.
+     *
+     * @return The snapshot size in bytes
+     */
+    int snapshotSize() {
+        return 3 * Integer.BYTES + length;
+    }
+
+    /*
+     * Writes the events for a game snapshot; the header is part of the snapshot itself.
+     *
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        buffer.putInt(turns);
+        buffer.putInt((recording ? 1 : 0) | (started ? 2 : 0));
+        buffer.putInt(length);
+        buffer.put(events, 0, length);
+    }
+
+    /*
+     * Reads events written by writeSnapshot into this (empty) log.
+     *
+     * @param buffer The buffer to read from
+     */
+    void readSnapshot(ByteBuffer buffer) {
+        turns = buffer.getInt();
+        int state = buffer.getInt();
+        recording = (state & 1) != 0;
+        started = (state & 2) != 0;
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() || (!recording && count > 0)) {
+            throw new IllegalArgumentException("Invalid event log length " + count);
+        }
+        length = 0;
+        ensureCapacity(count);
+        buffer.get(events, 0, count);
+        length = count;
+    }
+
+    /*
+     * Gets the direction index of a single step.
+     *
+     * @param dx The change in row, -1 to 1
+     * @param dy The change in column, -1 to 1
+     * @return The direction index into DX and DY
+     */
+    static int direction(int dx, int dy) {
+        if (dx == 0) return dy > 0 ? 0 : 2;
+        return dx > 0 ? 1 : 3;
+    }
+
+    // Getter methods for accessing private fields
+    public boolean isHardcoded() { return hardcoded; }
+    public int getSize() { return size; }
+    public long getSeed() { return seed; }
+    public GameParameters getParameters() { return parameters; }
+    public int getEnemyCount() { return enemyCount; }
+    public int getTurns() { return turns; }
+    public boolean isRecording() { return recording; }
+    // Number of encoded event bytes, excluding the header
+    public int getLength() { return length; }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > events.length) {
+            events = Arrays.copyOf(events, Math.max(events.length * 2, length + extra));
+        }
+    }
+
+    private static int putVarInt(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    private static int putVarLong(byte[] bytes, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+}
@@ -0,0 +1,169 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/*
+ * Difficulty settings of a game: how many lives, items and enemies there are, how long
+ * a clock slows the enemies down, and how far the player and the enemies move per turn.
+ * Instances are immutable; the with methods return modified copies, so one instance can
+ * be shared by any number of games and threads. DEFAULT holds the classic settings.
+ */
+public final class GameParameters {
+    // The classic game: 3 lives, 5 chests, 3 clocks, 3 slowed turns, enemies twice as fast, player range 3, 1 enemy
+    public static final GameParameters DEFAULT = new GameParameters(3, 5, 3, 3, 2, 3, 1);
+
+    // Largest player range; the move range window grows with its square
+    public static final int MAX_PLAYER_RANGE = 64;
+    // Largest number of lives, as TurnBatch results keep the lives in eight bits
+    public static final int MAX_LIVES = 255;
+    // Largest number of chests, so that collecting them all stays within TurnBatch.MAX_SCORE
+    public static final int MAX_CHESTS = TurnBatch.MAX_SCORE / Model.CHEST_SCORE;
+
+    // Number of ints written by writeSnapshot
+    static final int SNAPSHOT_INTS = 7;
+
+    private final int lives; // Lives the player starts with
+    private final int chests; // Chests placed in the maze
+    private final int clocks; // Clocks placed in the maze
+    private final int slowedTurns; // Enemy turns a clock slows the enemies for
+    private final int enemySpeed; // Steps an enemy takes per turn when not slowed
+    private final int playerRange; // Largest number of steps the player can take in one move
+    private final int enemyCount; // Number of enemies chasing the player
+
+    /*
+     * Constructor for GameParameters.
+     *
+     * @param lives The lives the player starts with, 1 to MAX_LIVES
+     * @param chests The number of chests, 0 to MAX_CHESTS
+     * @param clocks The number of clocks, at least 0
+     * @param slowedTurns The enemy turns a clock slows the enemies for, at least 0
+     * @param enemySpeed The steps an enemy takes per turn when not slowed, at least 1
+     * @param playerRange The largest number of steps in one player move, 1 to MAX_PLAYER_RANGE
+     * @param enemyCount The number of enemies, at least 1
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public GameParameters(int lives, int chests, int clocks, int slowedTurns, int enemySpeed,
+            int playerRange, int enemyCount) {
+        check("lives", lives, 1, MAX_LIVES);
+        check("chests", chests, 0, MAX_CHESTS);
+        check("clocks", clocks, 0, Integer.MAX_VALUE);
+        check("slowed turns", slowedTurns, 0, Integer.MAX_VALUE);
+        check("enemy speed", enemySpeed, 1, Integer.MAX_VALUE);
+        check("player range", playerRange, 1, MAX_PLAYER_RANGE);
+        check("enemy count", enemyCount, 1, Integer.MAX_VALUE);
+        this.lives = lives;
+        this.chests = chests;
+        this.clocks = clocks;
+        this.slowedTurns = slowedTurns;
+        this.enemySpeed = enemySpeed;
+        this.playerRange = playerRange;
+        this.enemyCount = enemyCount;
+    }
+
+    // Copies with one setting changed
+    public GameParameters withLives(int lives) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withChests(int chests) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withClocks(int clocks) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withSlowedTurns(int slowedTurns) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withEnemySpeed(int enemySpeed) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withPlayerRange(int playerRange) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+    public GameParameters withEnemyCount(int enemyCount) { return new GameParameters(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount); }
+
+    /*
+     * Gets a copy with one setting changed by name, as written by toString.
+     *
+     * @param name The setting's name: lives, chests, clocks, slowed, speed, range or enemies
+     * @param value The new value
+     * @return The modified copy
+     * @throws IllegalArgumentException if the name is unknown or the value out of range
+     */
+    public GameParameters with(String name, int value) {
+        switch (name) {
+            case "lives": return withLives(value);
+            case "chests": return withChests(value);
+            case "clocks": return withClocks(value);
+            case "slowed": return withSlowedTurns(value);
+            case "speed": return withEnemySpeed(value);
+            case "range": return withPlayerRange(value);
+            case "enemies": return withEnemyCount(value);
+            default: throw new IllegalArgumentException("Unknown game parameter " + name);
+        }
+    }
+
+    // Getter methods for accessing private fields
+    public int getLives() { return lives; }
+    public int getChests() { return chests; }
+    public int getClocks() { return clocks; }
+    public int getSlowedTurns() { return slowedTurns; }
+    public int getEnemySpeed() { return enemySpeed; }
+    public int getPlayerRange() { return playerRange; }
+    public int getEnemyCount() { return enemyCount; }
+
+    /*
+     * Writes the settings into a game snapshot or log header.
+     *
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        for (int value : toArray()) {
+            buffer.putInt(value);
+        }
+    }
+
+    /*
+     * Reads settings written by writeSnapshot.
+     *
+     * @param buffer The buffer to read from
+     * @return The settings
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    static GameParameters readSnapshot(ByteBuffer buffer) {
+        int[] values = new int[SNAPSHOT_INTS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt();
+        }
+        return fromArray(values);
+    }
+
+    /*
+     * Gets the settings in the order of the constructor's arguments.
+     */
+    int[] toArray() {
+        return new int[] {lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount};
+    }
+
+    /*
+     * Creates settings from values in the order of the constructor's arguments.
+     */
+    static GameParameters fromArray(int[] values) {
+        return new GameParameters(values[0], values[1], values[2], values[3], values[4], values[5], values[6]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameParameters)) return false;
+        GameParameters other = (GameParameters) o;
+        return lives == other.lives && chests == other.chests && clocks == other.clocks &&
+            slowedTurns == other.slowedTurns && enemySpeed == other.enemySpeed &&
+            playerRange == other.playerRange && enemyCount == other.enemyCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lives, chests, clocks, slowedTurns, enemySpeed, playerRange, enemyCount);
+    }
+
+    @Override
+    public String toString() {
+        return "lives=" + lives + " chests=" + chests + " clocks=" + clocks + " slowed=" + slowedTurns +
+            " speed=" + enemySpeed + " range=" + playerRange + " enemies=" + enemyCount;
+    }
+
+    private static void check(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value + ", expected " + min + " to " + max);
+        }
+    }
+}
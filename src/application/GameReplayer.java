@@ -0,0 +1,204 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/*
+ * Streaming reader for logs written by GameLog.writeTo.
+ * Games are read one at a time from a stream of concatenated logs. Each game starts
+ * from the state its header describes (maze, seed and game parameters) and its events are
+ * applied to the Model one turn at a time, so any turn can be reached without storing
+ * snapshots and without running the enemy's pathfinding. Only the current game is held
+ * in memory, so arbitrarily long recordings can be replayed.
+ */
+public class GameReplayer {
+    private final InputStream in; // Stream of serialized logs
+    private Model model; // Game being replayed, null before the first game
+    private int enemyCount; // Number of enemies in the current game
+    private int turn; // Number of turns replayed in the current game
+    private boolean ended; // Whether the current game's end marker has been read
+
+    /*
+     * Constructor for GameReplayer.
+     *
+     * @param in The stream to read logs from; it is buffered if it is not already
+     */
+    public GameReplayer(InputStream in) {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16);
+    }
+
+    /*
+     * Starts the next game in the stream, skipping what is left of the current one.
+     *
+     * @return true if a game was started, false at the end of the stream
+     * @throws IOException if reading fails or the log is malformed
+     */
+    public boolean nextGame() throws IOException {
+        while (model != null && !ended) {
+            advanceTurn();
+        }
+        int first = in.read();
+        if (first < 0) {
+            model = null;
+            return false;
+        }
+
+        int version = readVarInt(first);
+        if (version != GameLog.VERSION) {
+            throw new IOException("Unsupported game log version " + version);
+        }
+        boolean hardcoded = readVarInt(in.read()) != 0;
+        int size = readVarInt(in.read());
+        long seed = readVarLong();
+        int[] values = new int[GameParameters.SNAPSHOT_INTS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVarInt(in.read());
+        }
+        GameParameters parameters;
+        try {
+            parameters = GameParameters.fromArray(values);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid game log header: " + e.getMessage(), e);
+        }
+        enemyCount = parameters.getEnemyCount();
+        if (hardcoded && size != Model.SIZE) {
+            throw new IOException("Hardcoded maze log with size " + size);
+        }
+        if (!hardcoded && (size < 2 || size > MazeGenerator.MAX_SIZE)) {
+            throw new IOException("Invalid game log header: size " + size);
+        }
+
+        model = hardcoded ? new Model(seed, parameters) : new Model(size, seed, parameters);
+        // The replay records itself, so it ends up with the same log as the original
+        model.setRecording(true);
+        turn = 0;
+        ended = false;
+        return true;
+    }
+
+    /*
+     * Applies the events of the next turn.
+     *
+     * @return true if a whole turn was applied, false if the game's log ended first
+     * @throws IOException if reading fails or the log does not match the game
+     */
+    public boolean advanceTurn() throws IOException {
+        if (model == null) {
+            throw new IllegalStateException("No game started");
+        }
+        while (!ended) {
+            int event = in.read();
+            if (event < 0) {
+                throw new EOFException("Game log ends without an end marker");
+            }
+            int type = event >>> 4;
+            if (type == GameLog.END_OF_LOG) {
+                ended = true;
+                break;
+            }
+            int enemy = type == GameLog.ENEMY_STEP && enemyCount > 1 ? readVarInt(in.read()) : 0;
+            try {
+                model.replayEvent(type, event & 15, enemy);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Game log does not match the game at turn " + turn, e);
+            }
+            if (type == GameLog.TURN_END) {
+                turn++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Applies turns until the given turn has been reached or the game's log ends.
+     *
+     * @param target The number of turns the game should have played
+     * @return The number of turns actually played
+     * @throws IOException if reading fails or the log does not match the game
+     */
+    public int fastForward(int target) throws IOException {
+        while (turn < target && advanceTurn()) {
+            // Keep applying turns
+        }
+        return turn;
+    }
+
+    /*
+     * Applies all remaining events of the current game.
+     *
+     * @return The number of turns played
+     * @throws IOException if reading fails or the log does not match the game
+     */
+    public int finishGame() throws IOException {
+        while (advanceTurn()) {
+            // Keep applying turns
+        }
+        return turn;
+    }
+
+    // Getter methods for accessing private fields
+    public Model getModel() { return model; }
+    public int getTurn() { return turn; }
+
+    private int readVarInt(int first) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b < 0) throw new EOFException("Game log ends inside a number");
+            if (shift > 28) throw new IOException("Malformed number in game log");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+            b = in.read();
+        }
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Game log ends inside a number");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed number in game log");
+    }
+
+    /*
+     * Command line entry point: replays every game in a log file, optionally only up to
+     * a given turn, and prints the outcome counts and throughput.
+     * Usage: GameReplayer <log file> [turn]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameReplayer <log file> [turn]");
+            return;
+        }
+        int target = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+
+        int games = 0;
+        int won = 0;
+        int lost = 0;
+        long totalTurns = 0;
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+            GameReplayer replayer = new GameReplayer(in);
+            while (replayer.nextGame()) {
+                totalTurns += replayer.fastForward(target);
+                Model model = replayer.getModel();
+                if (model.isGameWon()) won++;
+                if (model.isGameOver()) lost++;
+                games++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games replayed in %.2f s (%.0f games/s)%n", games, seconds, games / seconds);
+        System.out.printf("  WON        %d%n  LOST       %d%n  mean turns %.1f%n", won, lost, (double) totalTurns / Math.max(1, games));
+    }
+}
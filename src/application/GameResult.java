@@ -0,0 +1,60 @@
+package application;
+
+/*
+ * Summary of a single finished game, as returned by Simulation.
+ */
+public class GameResult {
+    /*
+     * Enumeration of the ways a simulated game can end.
+     */
+    public enum Outcome {
+        WON, LOST, UNFINISHED
+    }
+
+    private final Outcome outcome; // How the game ended
+    private final int score; // Final score
+    private final int turns; // Number of turns played
+    private final int lives; // Lives left at the end
+    private final GameLog log; // Event log of the game, null if not kept
+
+    /*
+     * Constructor for GameResult.
+     *
+     * @param outcome How the game ended
+     * @param score The final score
+     * @param turns The number of turns played
+     * @param lives The number of lives left
+     */
+    public GameResult(Outcome outcome, int score, int turns, int lives) {
+        this(outcome, score, turns, lives, null);
+    }
+
+    /*
+     * Constructor for GameResult that keeps the game's event log for replaying.
+     *
+     * @param outcome How the game ended
+     * @param score The final score
+     * @param turns The number of turns played
+     * @param lives The number of lives left
+     * @param log The game's event log, or null
+     */
+    public GameResult(Outcome outcome, int score, int turns, int lives, GameLog log) {
+        this.outcome = outcome;
+        this.score = score;
+        this.turns = turns;
+        this.lives = lives;
+        this.log = log;
+    }
+
+    // Getter methods for accessing private fields
+    public Outcome getOutcome() { return outcome; }
+    public int getScore() { return score; }
+    public int getTurns() { return turns; }
+    public int getLives() { return lives; }
+    public GameLog getLog() { return log; }
+
+    @Override
+    public String toString() {
+        return outcome + " score=" + score + " turns=" + turns + " lives=" + lives;
+    }
+}
@@ -0,0 +1,435 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Headless server hosting independent games for many clients at once.
+ * Each connection to the local socket is one session with its own Model, driven by a
+ * line protocol that maps onto the Model API. Every command line gets exactly one
+ * response line, except MAZE, whose response is followed by the maze rows:
+ *
+ *   NEW [size [enemies [seed [strategy]]]]  start a game; size 0 or none is the hardcoded
+ *                                maze, strategy the enemy's search on a generated one
+ *                                (a_star, bidirectional_bfs, jump_point or incremental,
+ *                                the default)  -> OK <seed>
+ *   MAZE                         -> MAZE <size>, then one row per line: _ # C K F
+ *   STATE                        -> STATE <PLAYING|WON|LOST> <lives> <score> <px> <py> <enemies> {<ex> <ey>}
+ *   MOVE <x> <y>                 move the player there, then the enemies  -> STATE ...
+ *   PASS                         let the enemies move without moving the player  -> STATE ...
+ *   TURNS {<x>,<y> | R | D | L | U | P}  play several turns in one call (a target cell,
+ *                                a single step or a pass each)  -> TURNS <played> {<flags>}
+ *   UNDO | REDO                  take back or replay one turn  -> STATE ...
+ *   QUIT                         -> BYE, then the connection is closed
+ *
+ * The flags of each played turn are the TurnBatch outcome bits; a turn whose move could
+ * not be made is skipped, and the batch stops early when the game ends.
+ * Failed commands answer ERR <reason> and leave the game unchanged. A command line
+ * longer than MAX_LINE_LENGTH characters is answered with ERR and closes the connection,
+ * so a client cannot make the server buffer an endless line.
+ *
+ * Connections run on virtual threads when the runtime has them, so idle sessions cost
+ * no platform thread. The build targets Java 17 (maven.compiler.release), so virtual
+ * threads are only found, reflectively, when the server runs on Java 21 or later; on
+ * the Java 17 runtime the project is built for, connections fall back to a cached pool
+ * of platform threads, one per open session. main prints which of the two is in use.
+ */
+public class GameServer implements Closeable {
+    // Port the server listens on unless another is given
+    public static final int DEFAULT_PORT = 7777;
+    // Largest generated maze a client can ask for, to bound the memory of one session
+    public static final int MAX_MAZE_SIZE = 1024;
+    // Longest command line, without its terminator, that a session reads
+    public static final int MAX_LINE_LENGTH = 4096;
+    // Search a single enemy uses on a generated maze unless NEW names another
+    public static final PathFinder.Strategy DEFAULT_STRATEGY = PathFinder.Strategy.INCREMENTAL;
+
+    private final ServerSocket serverSocket; // Listening socket, bound to the loopback address
+    private final ExecutorService connections; // Runs one task per connection
+    private final AtomicInteger activeSessions = new AtomicInteger(); // Connections currently open
+
+    /*
+     * Constructor for GameServer.
+     * Binds the socket immediately; call serve to start accepting connections.
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the socket cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        connections = newConnectionExecutor();
+    }
+
+    /*
+     * Accepts connections until the server is closed, handing each to its own thread.
+     *
+     * @throws IOException if accepting fails for a reason other than close
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) break;
+                throw e;
+            }
+            connections.execute(() -> runSession(socket));
+        }
+    }
+
+    /*
+     * Stops accepting connections and interrupts the open sessions.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    // Getter methods for accessing private fields
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public int getActiveSessions() { return activeSessions.get(); }
+
+    /*
+     * Creates an executor that starts a virtual thread per task if the runtime supports
+     * them, or otherwise a cached pool of daemon platform threads. The virtual thread
+     * factory is looked up reflectively so the code still compiles for Java 17; it is
+     * only found on a Java 21 or later runtime, and Java 17 takes the fallback.
+     *
+     * @return The executor for connection tasks
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "pacmaze-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /*
+     * Checks whether connections run on virtual threads.
+     */
+    static boolean usesVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /*
+     * Creates the game for a NEW command. Generated mazes are played without a routing
+     * table, since at thousands of sessions its quadratic size would dominate the
+     * server's memory. A single enemy searches with the given strategy, which keeps its
+     * per-cell work arrays for the life of the session: the incremental search repairs
+     * its tree between turns and expands the fewest cells, while plain A* needs 7 ints
+     * per cell against 11 (28 MB against 44 MB at MAX_MAZE_SIZE) for clients that run
+     * many large mazes at once.
+     *
+     * @param size The maze size, or 0 for the hardcoded maze
+     * @param enemies The number of enemies on a generated maze
+     * @param seed The game's seed
+     * @param strategy The single enemy's search on a generated maze
+     * @return The new game
+     */
+    static Model newGame(int size, int enemies, long seed, PathFinder.Strategy strategy) {
+        if (size == 0) {
+            return new Model(seed);
+        }
+        Model model = new Model(size, seed, enemies);
+        model.setRoutingTableEnabled(false);
+        model.setPathFinderStrategy(strategy);
+        return model;
+    }
+
+    /*
+     * Formats the state line sent after every turn.
+     *
+     * @param model The game to describe
+     * @return The STATE line without a line terminator
+     */
+    static String describe(Model model) {
+        StringBuilder line = new StringBuilder(32 + model.getEnemies().size() * 8);
+        line.append("STATE ")
+            .append(model.isGameWon() ? "WON" : model.isGameOver() ? "LOST" : "PLAYING")
+            .append(' ').append(model.getPlayerLives())
+            .append(' ').append(model.getScore())
+            .append(' ').append(model.getPlayer().x)
+            .append(' ').append(model.getPlayer().y)
+            .append(' ').append(model.getEnemies().size());
+        for (Model.Enemy enemy : model.getEnemies()) {
+            line.append(' ').append(enemy.x).append(' ').append(enemy.y);
+        }
+        return line.toString();
+    }
+
+    /*
+     * Serves one connection until the client quits or disconnects.
+     */
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(
+                 new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII))) {
+            connection.setTcpNoDelay(true);
+            Session session = new Session();
+            StringBuilder buffer = new StringBuilder(80);
+            while (true) {
+                String line;
+                try {
+                    line = readLine(in, buffer);
+                } catch (IllegalArgumentException e) {
+                    out.write("ERR " + e.getMessage() + '\n');
+                    out.flush();
+                    break;
+                }
+                if (line == null) break;
+                boolean open = session.handle(line.trim(), out);
+                out.write('\n');
+                out.flush();
+                if (!open) break;
+            }
+        } catch (IOException e) {
+            // The client went away; its game is simply dropped
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /*
+     * Reads one command line, unlike BufferedReader.readLine never holding more than
+     * MAX_LINE_LENGTH characters of it. The line ends at a line feed; a carriage return
+     * before it is left for the caller's trim.
+     *
+     * @param in The connection's reader
+     * @param line A buffer for the line, reused between calls
+     * @return The line without its line feed, or null at the end of the stream
+     * @throws IllegalArgumentException if the line is longer than MAX_LINE_LENGTH
+     * @throws IOException if reading fails
+     */
+    static String readLine(Reader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                return line.length() > 0 ? line.toString() : null;
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IllegalArgumentException("line longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    /*
+     * The game of one connection and the commands that drive it.
+     * A session is only ever used by its connection's thread.
+     */
+    private static class Session {
+        private Model model; // Current game, null before the first NEW
+        private final TurnBatch batch = new TurnBatch(); // Commands of the last TURNS
+
+        /*
+         * Executes one command and writes its response without the final line terminator.
+         *
+         * @param command The command line
+         * @param out The writer for the response
+         * @return false if the client asked to close the connection
+         * @throws IOException if writing fails
+         */
+        boolean handle(String command, Writer out) throws IOException {
+            String[] words = command.split("\\s+");
+            try {
+                switch (words[0].toUpperCase()) {
+                    case "NEW":
+                        startGame(words, out);
+                        break;
+                    case "MAZE":
+                        writeMaze(requireGame(), out);
+                        break;
+                    case "STATE":
+                        out.write(describe(requireGame()));
+                        break;
+                    case "MOVE": {
+                        Model game = requireGame();
+                        if (words.length != 3) throw new IllegalArgumentException("usage: MOVE <x> <y>");
+                        Model.Position target = new Model.Position(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+                        if (!game.movePlayerToPosition(target)) {
+                            throw new IllegalArgumentException("cannot move to " + words[1] + " " + words[2]);
+                        }
+                        game.moveEnemy();
+                        out.write(describe(game));
+                        break;
+                    }
+                    case "PASS": {
+                        Model game = requireGame();
+                        game.moveEnemy();
+                        out.write(describe(game));
+                        break;
+                    }
+                    case "TURNS":
+                        playTurns(words, out);
+                        break;
+                    case "UNDO":
+                        if (!requireGame().undoTurn()) throw new IllegalArgumentException("nothing to undo");
+                        out.write(describe(model));
+                        break;
+                    case "REDO":
+                        if (!requireGame().redoTurn()) throw new IllegalArgumentException("nothing to redo");
+                        out.write(describe(model));
+                        break;
+                    case "QUIT":
+                        out.write("BYE");
+                        return false;
+                    default:
+                        throw new IllegalArgumentException("unknown command " + words[0]);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // NumberFormatException is an IllegalArgumentException as well
+                out.write("ERR " + e.getMessage());
+            }
+            return true;
+        }
+
+        /*
+         * Starts a new game from a NEW command.
+         */
+        private void startGame(String[] words, Writer out) throws IOException {
+            int size = words.length > 1 ? Integer.parseInt(words[1]) : 0;
+            int enemies = words.length > 2 ? Integer.parseInt(words[2]) : 1;
+            long seed = words.length > 3 ? Long.parseLong(words[3]) : ThreadLocalRandom.current().nextLong();
+            PathFinder.Strategy strategy = words.length > 4 ? parseStrategy(words[4]) : DEFAULT_STRATEGY;
+            if (size != 0 && (size < 2 || size > MAX_MAZE_SIZE)) {
+                throw new IllegalArgumentException("maze size must be 0 or 2 to " + MAX_MAZE_SIZE);
+            }
+            if (enemies < 1 || enemies > Math.max(1, size)) {
+                throw new IllegalArgumentException("enemy count must be 1 to " + Math.max(1, size));
+            }
+            model = newGame(size, enemies, seed, strategy);
+            out.write("OK " + model.getSeed());
+        }
+
+        /*
+         * Parses the search strategy of a NEW command, ignoring case.
+         */
+        private static PathFinder.Strategy parseStrategy(String word) {
+            for (PathFinder.Strategy strategy : PathFinder.Strategy.values()) {
+                if (strategy.name().equalsIgnoreCase(word)) {
+                    return strategy;
+                }
+            }
+            throw new IllegalArgumentException("unknown strategy " + word);
+        }
+
+        /*
+         * Parses the commands of a TURNS line and plays them as one batch.
+         */
+        private void playTurns(String[] words, Writer out) throws IOException {
+            Model game = requireGame();
+            batch.clear();
+            for (int i = 1; i < words.length; i++) {
+                String word = words[i].toUpperCase();
+                int comma = word.indexOf(',');
+                if (comma >= 0) {
+                    int x = Integer.parseInt(word.substring(0, comma));
+                    int y = Integer.parseInt(word.substring(comma + 1));
+                    if (x < 0 || x >= game.getSize() || y < 0 || y >= game.getSize()) {
+                        throw new IllegalArgumentException("cell " + word + " is outside the maze");
+                    }
+                    batch.moveTo(game, x, y);
+                } else if (word.equals("P")) {
+                    batch.pass();
+                } else {
+                    int direction = "RDLU".indexOf(word);
+                    if (word.length() != 1 || direction < 0) {
+                        throw new IllegalArgumentException("unknown turn " + words[i]);
+                    }
+                    batch.step(direction);
+                }
+            }
+            int played = batch.playOn(game);
+            StringBuilder line = new StringBuilder("TURNS ").append(played);
+            for (int i = 0; i < played; i++) {
+                line.append(' ').append(TurnBatch.flags(batch.getResult(i)));
+            }
+            out.write(line.toString());
+        }
+
+        /*
+         * Gets the current game.
+         *
+         * @throws IllegalStateException if no game has been started
+         */
+        private Model requireGame() {
+            if (model == null) throw new IllegalStateException("no game, send NEW first");
+            return model;
+        }
+
+        /*
+         * Writes the MAZE header followed by one line per maze row.
+         */
+        private static void writeMaze(Model game, Writer out) throws IOException {
+            PackedGrid grid = game.getGrid();
+            int size = grid.getSize();
+            out.write("MAZE " + size);
+            char[] row = new char[size];
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    switch (grid.getCell(x, y)) {
+                        case WALL: row[y] = '#'; break;
+                        case CHEST: row[y] = 'C'; break;
+                        case CLOCK: row[y] = 'K'; break;
+                        case FINISH: row[y] = 'F'; break;
+                        default: row[y] = '_'; break;
+                    }
+                }
+                out.write('\n');
+                out.write(row);
+            }
+        }
+    }
+
+    /*
+     * Command line entry point: serves games on the loopback address until killed.
+     * Usage: GameServer [port]
+     * With -Dpacmaze.metrics=true turn and search metrics (see Metrics) are collected;
+     * -Dpacmaze.metrics.file also dumps them periodically and once more at shutdown.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Metrics.startConfiguredDump();
+        // The server normally ends by being killed, so write the last dump from a hook
+        Runtime.getRuntime().addShutdownHook(new Thread(Metrics::stopPeriodicDump, "metrics-final-dump"));
+        try (GameServer server = new GameServer(port)) {
+            System.out.printf("Serving games on 127.0.0.1:%d using %s%n", server.getPort(),
+                usesVirtualThreads() ? "virtual threads" : "a cached thread pool");
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package application;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Compact binary save files for a running game.
+ * A snapshot is a small header (magic number, format version, body length) followed by
+ * the body written by Model.writeSnapshot: the game state, the undo history, the grid
+ * bitmaps as raw long words, for generated mazes the routing table, and the game's event
+ * log. The file is built in a heap buffer in little-endian order and written through a
+ * FileChannel, and the bitmaps and tables are copied back in bulk, so restoring a game
+ * never regenerates the maze or rebuilds its routing table. Saving writes a temporary
+ * file next to the target and moves it into place, so a failed save leaves the previous
+ * one intact. No file stays mapped or open, so the save can be replaced or deleted right
+ * after a load, even on Windows. Snapshots can also be loaded as fixtures for
+ * simulations and benchmarks.
+ */
+public class GameSnapshot {
+    // "PACM" in ASCII, marks a file as a PAC Maze snapshot
+    public static final int MAGIC = 0x5041434D;
+    // Format version; bumped whenever the body layout changes
+    public static final int VERSION = 5;
+
+    private static final int HEADER_BYTES = 16; // Magic, version and body length
+
+    private GameSnapshot() {
+    }
+
+    /*
+     * Saves the complete state of a game, replacing the file if it exists.
+     *
+     * @param model The game to save
+     * @param file The file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Model model, Path file) throws IOException {
+        long bodyBytes = model.snapshotSize();
+        if (HEADER_BYTES + bodyBytes > Integer.MAX_VALUE) {
+            throw new IOException("Game is too large to save (" + bodyBytes + " bytes)");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + bodyBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(bodyBytes);
+        model.writeSnapshot(buffer);
+        // The whole reserved length is written, unused space as zeros, as the header says
+        buffer.clear();
+
+        // Write next to the target, then swap it in, so a failure never touches the old save
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /*
+     * Restores a game saved with save.
+     *
+     * @param file The file to read
+     * @return The restored game
+     * @throws IOException if the file cannot be read, is not a snapshot, has another
+     *         format version or is truncated
+     */
+    public static Model load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES) {
+                throw new IOException(file + " is too short to be a snapshot");
+            }
+            if (fileBytes > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be a snapshot");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileBytes).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(file + " is truncated");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a PAC Maze snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has snapshot version " + version + ", expected " + VERSION);
+            }
+            if (buffer.getLong() != fileBytes - HEADER_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+            try {
+                return Model.readSnapshot(buffer);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException(file + " is corrupt", e);
+            }
+        }
+    }
+
+    /*
+     * Writes an array of long words in bulk.
+     */
+    static void putLongs(ByteBuffer buffer, long[] words) {
+        buffer.asLongBuffer().put(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+    }
+
+    /*
+     * Reads an array of long words in bulk.
+     */
+    static void getLongs(ByteBuffer buffer, long[] words) {
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+    }
+
+    /*
+     * Writes an array of ints in bulk.
+     */
+    static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+    /*
+     * Reads an array of ints in bulk.
+     */
+    static void getInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+}
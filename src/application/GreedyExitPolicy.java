@@ -0,0 +1,80 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Baseline player policy that heads straight for the exit.
+ * Each turn it picks the reachable cell within the player's range that is closest
+ * to the finish by maze distance, ignoring the enemy. Distances to the finish are
+ * computed with one breadth-first search per game, since walls never change.
+ * Instances keep per-game state and must not be shared between threads.
+ */
+public class GreedyExitPolicy implements PlayerPolicy {
+    private PackedGrid grid; // Grid the distances were computed for
+    private int[] distanceToFinish; // Maze distance from each cell to the finish, -1 if unreachable
+
+    @Override
+    public Model.Position chooseMove(Model model) {
+        if (model.getGrid() != grid) {
+            grid = model.getGrid();
+            distanceToFinish = computeDistances(grid, model.getFinish());
+        }
+
+        int size = grid.getSize();
+        int range = model.getParameters().getPlayerRange();
+        Model.Player player = model.getPlayer();
+        Model.Position best = null;
+        int bestDistance = Integer.MAX_VALUE;
+
+        // Scan every cell within the player's movement range
+        for (int dx = -range; dx <= range; dx++) {
+            for (int dy = -range + Math.abs(dx); dy <= range - Math.abs(dx); dy++) {
+                int x = player.x + dx;
+                int y = player.y + dy;
+                if (x < 0 || x >= size || y < 0 || y >= size) continue;
+
+                int distance = distanceToFinish[x * size + y];
+                if (distance < 0 || distance >= bestDistance) continue;
+
+                Model.Position target = new Model.Position(x, y);
+                if (model.isValidMoveTarget(target) && !model.calculatePathTo(target).isEmpty()) {
+                    best = target;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Runs a breadth-first search from the finish over all walkable cells.
+     *
+     * @param grid The maze grid
+     * @param finish The finish position
+     * @return The maze distance from each cell index to the finish, -1 if unreachable
+     */
+    static int[] computeDistances(PackedGrid grid, Model.Position finish) {
+        int size = grid.getSize();
+        int[] distance = new int[grid.getCellCount()];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[grid.getCellCount()];
+        int head = 0;
+        int tail = 0;
+
+        int start = finish.x * size + finish.y;
+        distance[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            int mask = grid.openNeighbours(current);
+            while (mask != 0) {
+                int neighbor = current + grid.offset(Integer.lowestOneBit(mask));
+                mask &= mask - 1;
+                if (distance[neighbor] >= 0) continue;
+                distance[neighbor] = distance[current] + 1;
+                queue[tail++] = neighbor;
+            }
+        }
+        return distance;
+    }
+}
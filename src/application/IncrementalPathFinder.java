@@ -0,0 +1,360 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Incremental A* for one enemy chasing a moving player, in the style of Fringe-Retrieving
+ * A* and D* Lite.
+ * The search tree rooted at the enemy is kept between calls instead of being thrown away:
+ * - When the enemy has taken the steps this finder returned, the tree is re-rooted at
+ *   the enemy's new cell. Walls never change, so the distances inside the subtree below
+ *   that cell are still exact; only the branches left behind are deleted (found through
+ *   child links, so the cost is proportional to what is deleted), and the kept cells
+ *   bordering them are put back into the open list.
+ * - When the player has moved, the heap keys, computed with the Manhattan heuristic
+ *   towards the old cell, are not rebuilt. As in D* Lite, the distance the goal moved is
+ *   added to an offset km, which keeps every stored key a lower bound; a key is brought
+ *   up to date only when it reaches the top of the heap.
+ * If the new goal is already in the closed part of the tree the answer needs no search at
+ * all, otherwise A* continues from the retained open list. A start that is not a nearby
+ * descendant of the current root (a respawn, or an undone move) starts a fresh search.
+ */
+public class IncrementalPathFinder implements PathFinder {
+    // Most steps the start may have advanced down the tree before the search starts over
+    private static final int MAX_REROOT_DEPTH = 16;
+
+    private final PackedGrid grid; // Maze the searches run on
+    private final int size; // Width and height of the maze
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+
+    private final int[] gScore; // Cost from the first root of the tree to each cell
+    private final int[] cameFrom; // Parent of each cell in the tree, the cell itself for the root
+    private final int[] firstChild; // First child of each cell in the tree, -1 if none
+    private final int[] nextSibling; // Next child of the same parent, -1 if none
+    private final int[] previousSibling; // Previous child of the same parent, -1 if none
+    private final int[] seen; // Generation in which the cell was added to the tree
+    private final int[] closed; // Generation in which the cell was expanded
+
+    private final int[] heap; // Binary min-heap of open cells, ordered by key
+    private final int[] heapIndex; // Position of each open cell inside the heap
+    private final int[] key; // Lower bound of gScore + heuristic + km for each open cell
+    private int heapSize;
+
+    private final int[] deleted; // Scratch list of the cells removed by a re-root
+    private final int[] rerootPath = new int[MAX_REROOT_DEPTH]; // Cells between the old root and the start
+
+    private int generation; // Stamp of the current tree
+    private int root = -1; // Cell the tree is rooted at, -1 before the first search
+    private int goal = -1; // Goal of the previous search
+    private int goalX; // Row of the goal
+    private int goalY; // Column of the goal
+    private int km; // Total distance the goal has moved since the tree was started
+    private int nodesExpanded; // Number of cells expanded by the last call
+    private int pathLength; // Length of the path found by the last call, -1 if none
+
+    /*
+     * Constructor for IncrementalPathFinder.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to search on
+     */
+    public IncrementalPathFinder(PackedGrid grid) {
+        this.grid = grid;
+        this.size = grid.getSize();
+        this.offsets = new int[] {1, size, -1, -size};
+        int cells = grid.getCellCount();
+        gScore = new int[cells];
+        cameFrom = new int[cells];
+        firstChild = new int[cells];
+        nextSibling = new int[cells];
+        previousSibling = new int[cells];
+        seen = new int[cells];
+        closed = new int[cells];
+        heap = new int[cells];
+        heapIndex = new int[cells];
+        key = new int[cells];
+        deleted = new int[cells];
+    }
+
+    @Override
+    public int nextStep(int start, int goal) {
+        nodesExpanded = 0;
+        pathLength = 0;
+        if (start == goal) return goal;
+        if (!moveRoot(start)) {
+            restart(start);
+        }
+        moveGoal(goal);
+        if (!search()) {
+            pathLength = -1;
+            return -1;
+        }
+        pathLength = gScore[goal] - gScore[root];
+
+        // Backtrack from the goal until we reach the cell right after the root
+        int next = goal;
+        while (cameFrom[next] != root) {
+            next = cameFrom[next];
+        }
+        return next;
+    }
+
+    @Override
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    @Override
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /*
+     * Re-roots the tree at the start if it lies a few steps below the current root.
+     *
+     * @return true if the tree is rooted at the start, false if it must be rebuilt
+     */
+    private boolean moveRoot(int start) {
+        if (root < 0 || seen[start] != generation) return false;
+        int depth = 0;
+        for (int cell = start; cell != root; cell = cameFrom[cell]) {
+            if (depth == MAX_REROOT_DEPTH) return false;
+            rerootPath[depth++] = cell;
+        }
+        while (depth > 0) {
+            rerootTo(rerootPath[--depth]);
+        }
+        return true;
+    }
+
+    /*
+     * Makes a child of the root the new root, deleting the old root and the subtrees of
+     * its other children and reopening the kept cells next to them.
+     */
+    private void rerootTo(int child) {
+        unlink(child);
+        cameFrom[child] = child;
+
+        // Collect the old root and every cell below it that is not below the new root
+        int count = 0;
+        deleted[count++] = root;
+        for (int i = 0; i < count; i++) {
+            for (int c = firstChild[deleted[i]]; c >= 0; c = nextSibling[c]) {
+                deleted[count++] = c;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int cell = deleted[i];
+            if (closed[cell] != generation) {
+                removeFromHeap(cell);
+            }
+            seen[cell] = 0;
+            closed[cell] = 0;
+        }
+
+        // Kept cells that were expanded into the deleted area must be expanded again
+        for (int i = 0; i < count; i++) {
+            int cell = deleted[i];
+            int mask = grid.openNeighbours(cell);
+            while (mask != 0) {
+                int neighbor = cell + offsets[Integer.numberOfTrailingZeros(mask)];
+                mask &= mask - 1;
+                if (closed[neighbor] == generation) {
+                    closed[neighbor] = 0;
+                    key[neighbor] = currentKey(neighbor);
+                    push(neighbor);
+                }
+            }
+        }
+        root = child;
+    }
+
+    /*
+     * Points the search at a new goal, adding the distance it moved to km.
+     */
+    private void moveGoal(int newGoal) {
+        if (newGoal == goal) return;
+        int newX = newGoal / size;
+        int newY = newGoal % size;
+        if (goal >= 0) {
+            km += Math.abs(newX - goalX) + Math.abs(newY - goalY);
+        }
+        goal = newGoal;
+        goalX = newX;
+        goalY = newY;
+    }
+
+    /*
+     * Discards the tree and starts a new one at the given cell.
+     */
+    private void restart(int start) {
+        nextGeneration();
+        heapSize = 0;
+        km = 0;
+        goal = -1;
+        root = start;
+        seen[start] = generation;
+        gScore[start] = 0;
+        cameFrom[start] = start;
+        firstChild[start] = -1;
+        key[start] = 0;
+        push(start);
+    }
+
+    /*
+     * Expands cells until the goal is closed.
+     *
+     * @return true if the goal was reached, false if it is unreachable
+     */
+    private boolean search() {
+        while (closed[goal] != generation) {
+            if (heapSize == 0) return false;
+            int current = heap[0];
+            int currentKey = currentKey(current);
+            if (key[current] < currentKey) {
+                // The key was computed for an earlier goal; fix it and look again
+                key[current] = currentKey;
+                siftDown(0);
+                continue;
+            }
+            poll();
+            closed[current] = generation;
+            nodesExpanded++;
+
+            int nextG = gScore[current] + 1;
+            int mask = grid.openNeighbours(current);
+            while (mask != 0) {
+                int neighbor = current + offsets[Integer.numberOfTrailingZeros(mask)];
+                mask &= mask - 1;
+                if (closed[neighbor] == generation) continue;
+
+                if (seen[neighbor] != generation) {
+                    seen[neighbor] = generation;
+                    gScore[neighbor] = nextG;
+                    firstChild[neighbor] = -1;
+                    link(neighbor, current);
+                    key[neighbor] = currentKey(neighbor);
+                    push(neighbor);
+                } else if (nextG < gScore[neighbor]) {
+                    // Better path to a cell that is already in the open set
+                    unlink(neighbor);
+                    link(neighbor, current);
+                    gScore[neighbor] = nextG;
+                    key[neighbor] = currentKey(neighbor);
+                    siftUp(heapIndex[neighbor]);
+                    siftDown(heapIndex[neighbor]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Computes a cell's key for the current goal and km.
+     */
+    private int currentKey(int cell) {
+        return gScore[cell] + Math.abs(cell / size - goalX) + Math.abs(cell % size - goalY) + km;
+    }
+
+    /*
+     * Adds a cell to the front of its new parent's child list.
+     */
+    private void link(int cell, int parent) {
+        cameFrom[cell] = parent;
+        int first = firstChild[parent];
+        nextSibling[cell] = first;
+        previousSibling[cell] = -1;
+        if (first >= 0) previousSibling[first] = cell;
+        firstChild[parent] = cell;
+    }
+
+    /*
+     * Removes a cell from its parent's child list.
+     */
+    private void unlink(int cell) {
+        int previous = previousSibling[cell];
+        int next = nextSibling[cell];
+        if (previous >= 0) {
+            nextSibling[previous] = next;
+        } else {
+            firstChild[cameFrom[cell]] = next;
+        }
+        if (next >= 0) previousSibling[next] = previous;
+    }
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void poll() {
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+    }
+
+    private void removeFromHeap(int cell) {
+        int i = heapIndex[cell];
+        int last = heap[--heapSize];
+        if (i < heapSize) {
+            heap[i] = last;
+            heapIndex[last] = i;
+            siftUp(i);
+            siftDown(heapIndex[last]);
+        }
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int other = heap[parent];
+            if (!less(cell, other)) break;
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = parent;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) child = right;
+            int other = heap[child];
+            if (!less(other, cell)) break;
+            heap[i] = other;
+            heapIndex[other] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    /*
+     * Heap ordering: lower key first, ties broken in favour of the deeper cell.
+     */
+    private boolean less(int a, int b) {
+        if (key[a] != key[b]) return key[a] < key[b];
+        return gScore[a] > gScore[b];
+    }
+
+    /*
+     * Advances the generation stamp, wiping the stamp arrays on overflow.
+     */
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+    }
+}
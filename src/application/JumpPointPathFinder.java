@@ -0,0 +1,125 @@
+package application;
+
+/*
+ * Jump point search for the enemy on a 4-connected grid.
+ * Runs the A* search of AStarPathFinder, but instead of opening every neighbour it
+ * scans in a straight line from the expanded cell and only opens the next jump point:
+ * the goal, a cell where a side opens up that was walled off one cell earlier (a forced
+ * neighbour), or, when scanning up or down, a cell from which a sideways scan finds a
+ * jump point. Cells between jump points are passed over without touching the heap, so
+ * open areas with many equally short paths cost a handful of expansions. The scans
+ * still read every cell they pass, and a column scan starts a row scan at each cell,
+ * so on open grids the time saved on the heap is spent scanning (see
+ * getCellsScanned). In narrow corridors nearly every cell is a jump point.
+ */
+public class JumpPointPathFinder extends AStarPathFinder {
+    // Sides of a row scan (down and up) and of a column scan (right and left), as neighbour bits
+    private static final int ROW_SIDES = PackedGrid.DOWN | PackedGrid.UP;
+    private static final int COLUMN_SIDES = PackedGrid.RIGHT | PackedGrid.LEFT;
+
+    private final PackedGrid grid; // Maze the searches run on
+    private final int size; // Width and height of the maze
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+
+    private int cellsScanned; // Number of cells passed over by jumps in the last search
+
+    /*
+     * Constructor for JumpPointPathFinder.
+     * Allocates all working arrays for the given maze.
+     *
+     * @param grid The maze grid to search on
+     */
+    public JumpPointPathFinder(PackedGrid grid) {
+        super(grid);
+        this.grid = grid;
+        this.size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+    }
+
+    @Override
+    public int nextStep(int start, int goal) {
+        cellsScanned = 0;
+        return super.nextStep(start, goal);
+    }
+
+    @Override
+    public int distance(int start, int goal) {
+        cellsScanned = 0;
+        return super.distance(start, goal);
+    }
+
+    /*
+     * Gets the number of cells the jumps of the most recent search passed over. Unlike
+     * expansions these cost no heap operations, but they are the bulk of the work.
+     *
+     * @return The scanned cell count
+     */
+    public int getCellsScanned() {
+        return cellsScanned;
+    }
+
+    /*
+     * Opens the jump point in every direction except back towards the parent.
+     */
+    @Override
+    void expand(int current, int goal) {
+        int mask = grid.openNeighbours(current);
+        int parent = parentOf(current);
+        if (parent != current) {
+            mask &= ~(1 << directionTo(current, parent));
+        }
+        int g = costTo(current);
+        while (mask != 0) {
+            int direction = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            int jumpPoint = jump(current, direction, goal);
+            if (jumpPoint >= 0) {
+                addSuccessor(jumpPoint, current, g + Math.abs(jumpPoint / size - current / size) +
+                    Math.abs(jumpPoint % size - current % size));
+            }
+        }
+    }
+
+    /*
+     * Scans from a cell in one direction until a jump point or a wall is reached.
+     *
+     * @param cell The cell to scan from
+     * @param direction The direction index (right, down, left, up)
+     * @param goal The goal of the search
+     * @return The jump point, or -1 if the scan ran into a wall first
+     */
+    private int jump(int cell, int direction, int goal) {
+        int offset = offsets[direction];
+        boolean row = (direction & 1) == 0;
+        int sides = row ? ROW_SIDES : COLUMN_SIDES;
+        int bit = 1 << direction;
+
+        int previousMask = grid.openNeighbours(cell);
+        while ((previousMask & bit) != 0) {
+            cell += offset;
+            cellsScanned++;
+            if (cell == goal) return cell;
+
+            int mask = grid.openNeighbours(cell);
+            // A side that is open here but was a wall one cell back is a forced neighbour
+            if ((mask & ~previousMask & sides) != 0) return cell;
+            // A column scan stops wherever a row scan would find a jump point
+            if (!row && ((mask & PackedGrid.RIGHT) != 0 && jump(cell, 0, goal) >= 0 ||
+                         (mask & PackedGrid.LEFT) != 0 && jump(cell, 2, goal) >= 0)) {
+                return cell;
+            }
+            previousMask = mask;
+        }
+        return -1;
+    }
+
+    /*
+     * Gets the direction index from a cell towards another cell in the same row or column.
+     */
+    private int directionTo(int from, int to) {
+        if (from / size == to / size) {
+            return to > from ? 0 : 2;
+        }
+        return to > from ? 1 : 3;
+    }
+}
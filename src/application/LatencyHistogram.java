@@ -0,0 +1,153 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Histogram of durations in nanoseconds with a fixed relative precision, laid out like
+ * HdrHistogram: values below 128 get a bucket each, and every further power of two is
+ * split into 64 equal buckets, so a recorded value is off by less than 1/64 of itself.
+ * Recording is an index computation and one atomic increment, safe from any thread and
+ * free of allocation; percentiles are read from a snapshot copy of the counts.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6; // log2 of the buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two
+    // Largest value that gets its own bucket; longer durations (over a minute) are clamped
+    private static final long HIGHEST_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = bucketOf(HIGHEST_VALUE) + 1;
+
+    private final String name; // Name the histogram is reported under
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT); // Recorded values per bucket
+    private final LongAdder sum = new LongAdder(); // Sum of all recorded values
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0); // Largest recorded value
+
+    /*
+     * Constructor for LatencyHistogram.
+     *
+     * @param name The name the histogram is reported under
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /*
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(Math.min(value, HIGHEST_VALUE)));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /*
+     * Records the time elapsed since a start taken with Metrics.start(), if metrics were
+     * enabled at that point.
+     *
+     * @param started The value returned by Metrics.start()
+     */
+    public void recordSince(long started) {
+        if (started != 0) {
+            record(System.nanoTime() - started);
+        }
+    }
+
+    /*
+     * Copies the current counts. Values recorded during the copy may or may not be
+     * included, but every included value is complete.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(name, copy, count, sum.sum(), max.get());
+    }
+
+    /*
+     * Maps a value to its bucket: the value itself below 2 * SUB_BUCKETS, above that the
+     * power of two it falls in and its top SUB_BUCKET_BITS + 1 bits.
+     */
+    private static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /*
+     * Gets the largest value that falls into a bucket.
+     */
+    private static long highestValueIn(int bucket) {
+        int shift = Math.max(0, (bucket >> SUB_BUCKET_BITS) - 1);
+        long top = bucket - ((long) shift << SUB_BUCKET_BITS);
+        return ((top + 1) << shift) - 1;
+    }
+
+    /*
+     * Immutable copy of a histogram's counts.
+     */
+    public static class Snapshot {
+        private final String name; // Name of the histogram
+        private final long[] counts; // Recorded values per bucket
+        private final long count; // Number of recorded values
+        private final long sum; // Sum of the recorded values
+        private final long max; // Largest recorded value
+
+        private Snapshot(String name, long[] counts, long count, long sum, long max) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+        public double getMean() { return count == 0 ? 0 : (double) sum / count; }
+
+        /*
+         * Gets the value below or at which the given share of recorded values lie.
+         *
+         * @param percentile The percentile, from 0 to 100
+         * @return The highest value of the bucket holding that percentile, in nanoseconds,
+         *         or 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+
+        /*
+         * Formats the count, mean, common percentiles and maximum in microseconds.
+         */
+        @Override
+        public String toString() {
+            return String.format("%s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                name, count, micros(getMean()), micros(getValueAtPercentile(50)), micros(getValueAtPercentile(90)),
+                micros(getValueAtPercentile(99)), micros(getValueAtPercentile(99.9)), micros(max));
+        }
+
+        private static double micros(double nanos) {
+            return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+}
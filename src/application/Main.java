@@ -4,14 +4,16 @@ import javafx.application.Application;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class Main extends Application {
     // The main stage of the application
     private Stage primaryStage;
@@ -19,11 +21,28 @@ public class Main extends Application {
     private Model model;
     // The size of the game window
     private int WINDOW_SIZE = 800;
+    // Mazes larger than this are drawn on a canvas instead of a grid of buttons
+    private static final int CANVAS_THRESHOLD = 40;
+    // Where an unfinished game is saved when returning to the main menu
+    private static final Path SAVE_FILE = Paths.get(System.getProperty("user.home"), ".pacmaze-save");
+    // Background music, loaded once and shared by all games
+    private final AudioService audio = new AudioService();
     
     
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        // Start decoding all images in the background, including the board tiles of a large generated maze
+        Integer size = Integer.getInteger("pacmaze.size");
+        if (size != null && size > CANVAS_THRESHOLD) {
+            Assets.preload(CanvasBoard.tileSize(size));
+        } else {
+            Assets.preload();
+        }
+        // Open the music track in the background so the first game can start it at once
+        audio.load("/res/music_maze.mp3");
+        // Start writing metrics to a file if -Dpacmaze.metrics.file asks for it
+        Metrics.startConfiguredDump();
         // Show the start screen when the application launches
         showStartScreen();
     }
@@ -34,18 +53,25 @@ public class Main extends Application {
         VBox startLayout = new VBox(20);
         startLayout.setAlignment(Pos.CENTER);
         
-        // Load and display the game logo
-        Image logo = new Image("img/logo.png");
-        ImageView logoView = new ImageView(logo);
+        // Display the game logo
+        ImageView logoView = new ImageView(Assets.get(Assets.LOGO));
         logoView.setFitWidth(250); 
         logoView.setPreserveRatio(true);
         
         // Create and style the "PLAY" button
         Button playButton = new Button("PLAY");
         playButton.setStyle("-fx-font-size: 20px; -fx-min-width: 150px; -fx-min-height: 40px;");
-        playButton.setOnAction(e -> showGameScreen());
+        playButton.setOnAction(e -> showGameScreen(newModel()));
         playButton.getStyleClass().add("blue-button");
         
+        // Create and style the "CONTINUE" button, shown when a saved game exists
+        Button continueButton = new Button("CONTINUE");
+        continueButton.setStyle("-fx-font-size: 20px; -fx-min-width: 150px; -fx-min-height: 40px;");
+        continueButton.setOnAction(e -> continueGame());
+        continueButton.getStyleClass().add("blue-button");
+        continueButton.setVisible(Files.exists(SAVE_FILE));
+        continueButton.setManaged(continueButton.isVisible());
+        
         // Create and style the "ABOUT" button
         Button aboutButton = new Button("ABOUT");
         aboutButton.setStyle("-fx-font-size: 20px; -fx-min-width: 150px; -fx-min-height: 40px;");
@@ -53,7 +79,7 @@ public class Main extends Application {
         aboutButton.getStyleClass().add("blue-button");
         
         // Add all elements to the start layout
-        startLayout.getChildren().addAll(logoView, playButton, aboutButton);
+        startLayout.getChildren().addAll(logoView, continueButton, playButton, aboutButton);
         
         // Create a new scene with the start layout
         Scene scene = new Scene(startLayout, WINDOW_SIZE, WINDOW_SIZE);
@@ -64,23 +90,67 @@ public class Main extends Application {
         primaryStage.show();
     }
     
-    //Displays the main game screen
-    private void showGameScreen() {
-        // Initialize a new game model
-        model = new Model();
+    //Creates a new game model: the hardcoded maze, or a generated one when
+    //started with -Dpacmaze.size=<n>; -Dpacmaze.seed=<seed> replays a game
+    private Model newModel() {
+        Integer size = Integer.getInteger("pacmaze.size");
+        long seed = Long.getLong("pacmaze.seed", System.nanoTime());
+        if (size == null) {
+            return new Model(seed);
+        }
+        return new Model(size, seed);
+    }
+    
+    //Restores the saved game, or starts a new one if the save cannot be read
+    private void continueGame() {
+        try {
+            showGameScreen(GameSnapshot.load(SAVE_FILE));
+        } catch (IOException e) {
+            System.err.println("Error loading saved game: " + e.getMessage());
+            showGameScreen(newModel());
+        }
+    }
+    
+    //Saves the current game so it can be continued, or deletes the save once the game is over
+    private void saveGame() {
+        try {
+            if (model.isGameOver() || model.isGameWon()) {
+                Files.deleteIfExists(SAVE_FILE);
+            } else {
+                GameSnapshot.save(model, SAVE_FILE);
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving game: " + e.getMessage());
+        }
+    }
+    
+    //Displays the main game screen for the given game
+    private void showGameScreen(Model model) {
+        this.model = model;
         // Create a new view for the game
-        View view = new View();
+        View.BoardStyle boardStyle = model.getSize() > CANVAS_THRESHOLD ? View.BoardStyle.CANVAS : View.BoardStyle.BUTTONS;
+        View view = new View(model.getSize(), boardStyle);
         
         // Create a new controller, passing a callback to return to the menu
-        Controller controller = new Controller(model, view, unused -> showStartScreen());
+        Controller controller = new Controller(model, view, unused -> {
+            audio.stop();
+            saveGame();
+            showStartScreen();
+        });
+        // Stop the music as soon as the game is won or lost, and resume it if the ending is undone
+        controller.setOnGameEnd(audio::stop);
+        controller.setOnGameResumed(audio::play);
         
         // Perform initial update of the view
         view.update(model);
         
-        initializeMusic();
+        // A loaded game may already be over
+        if (!controller.isGameEnded()) {
+            audio.play();
+        }
         
         // Create a new scene with the game layout
-        Scene gameScene = new Scene(view.getMainLayout(), WINDOW_SIZE, WINDOW_SIZE);
+        Scene gameScene = new Scene(view.getRoot(), WINDOW_SIZE, WINDOW_SIZE);
         primaryStage.setScene(gameScene);
         primaryStage.setTitle("PAC Maze - Game");
     }
@@ -91,8 +161,7 @@ public class Main extends Application {
         VBox aboutLayout = new VBox(20);
         aboutLayout.setAlignment(Pos.CENTER);
         
-        Image logo = new Image("img/logo.png");
-        ImageView logoView = new ImageView(logo);
+        ImageView logoView = new ImageView(Assets.get(Assets.LOGO));
         logoView.setFitWidth(250); 
         logoView.setPreserveRatio(true);
         
@@ -104,7 +173,7 @@ public class Main extends Application {
         		"• Collect chests for points\n\n" +
         		"• Collect clocks to slow down the enemy\n\n" +
         		"• Avoid the enemy or lose a life\n\n" +
-        		"• Undo your moves by pressing Back Space key!\n\n" +
+        		"• Undo a turn with the Back Space key and redo it with R!\n\n" +
         		"• Reach the finish point to win!\n\n" +
         		"• You have 3 lives - Good luck!\n\n"
             );        
@@ -131,24 +200,10 @@ public class Main extends Application {
         launch(args);
     }
     
-    
-    public void initializeMusic() {
-        try {
-            // Load media from the resources folder using getResource
-            String mediaPath = getClass().getResource("/res/music_maze.mp3").toExternalForm();
-
-            // Initialize Media and MediaPlayer
-            Media media = new Media(mediaPath);
-            MediaPlayer mediaPlayer = new MediaPlayer(media);
-
-            // Optionally, set the music to auto-play
-            mediaPlayer.setAutoPlay(true);
-
-            // Play the media
-            mediaPlayer.play();
-        } catch (Exception e) {
-            System.err.println("Error loading media file: " + e.getMessage());
-            e.printStackTrace();
-        }
+    // Releases the music player and writes the last metrics dump when the application exits
+    @Override
+    public void stop() {
+        audio.dispose();
+        Metrics.stopPeriodicDump();
     }
 }
\ No newline at end of file
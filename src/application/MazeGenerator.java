@@ -0,0 +1,117 @@
+package application;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/*
+ * Seeded procedural maze generator.
+ * Carves a perfect maze with an iterative recursive backtracker over the "rooms" at even
+ * coordinates, then knocks out a fraction of the remaining walls between rooms so the
+ * maze has loops and the enemy can be outrun. Time and memory are linear in the number
+ * of cells, and the result is returned as a BitSet of open cells (one bit per cell,
+ * indexed x * size + y), so even a 2000x2000 maze takes only 500 KB.
+ * The same size and seed always produce the same maze.
+ */
+public class MazeGenerator {
+    // Largest supported maze edge length
+    public static final int MAX_SIZE = 4096;
+    // Default probability of removing a wall between two rooms after carving
+    public static final double DEFAULT_LOOP_CHANCE = 0.1;
+
+    // Movement directions between rooms (right, down, left, up), two cells at a time
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    /*
+     * Generates a maze with the default amount of loops.
+     *
+     * @param size The width and height of the maze
+     * @param seed The random seed
+     * @return The open (walkable) cells
+     */
+    public static BitSet generate(int size, long seed) {
+        return generate(size, seed, DEFAULT_LOOP_CHANCE);
+    }
+
+    /*
+     * Generates a maze.
+     * The corners (0, 0), (0, size - 1) and (size - 1, size - 1) are always open and
+     * connected, so they can be used as player start, finish and enemy start.
+     *
+     * @param size The width and height of the maze
+     * @param seed The random seed
+     * @param loopChance The probability of removing each remaining wall between two rooms
+     * @return The open (walkable) cells
+     */
+    public static BitSet generate(int size, long seed, double loopChance) {
+        if (size < 2 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Maze size must be between 2 and " + MAX_SIZE + ": " + size);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        BitSet open = new BitSet(size * size);
+
+        // Rooms sit on even coordinates; an open room doubles as the visited marker
+        int rooms = (size + 1) / 2;
+        int[] stack = new int[rooms * rooms];
+        int top = 0;
+        open.set(0);
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int current = stack[top - 1];
+            int x = current / size;
+            int y = current % size;
+
+            // Pick a random unvisited neighbouring room
+            int start = random.nextInt(4);
+            int chosen = -1;
+            for (int k = 0; k < 4; k++) {
+                int d = (start + k) & 3;
+                int nx = x + 2 * DX[d];
+                int ny = y + 2 * DY[d];
+                if (nx >= 0 && nx < size && ny >= 0 && ny < size && !open.get(nx * size + ny)) {
+                    chosen = d;
+                    break;
+                }
+            }
+
+            if (chosen < 0) {
+                top--; // Dead end, backtrack
+                continue;
+            }
+            int nx = x + 2 * DX[chosen];
+            int ny = y + 2 * DY[chosen];
+            open.set((x + DX[chosen]) * size + (y + DY[chosen])); // Knock down the wall in between
+            open.set(nx * size + ny);
+            stack[top++] = nx * size + ny;
+        }
+
+        // Insert loops by opening walls that separate two rooms
+        for (int x = 0; x < size; x++) {
+            for (int y = (x + 1) & 1; y < size; y += 2) {
+                // Cells with exactly one odd coordinate lie between two rooms
+                boolean between = (x & 1) == 1
+                        ? x + 1 < size
+                        : y + 1 < size;
+                if (between && !open.get(x * size + y) && random.nextDouble() < loopChance) {
+                    open.set(x * size + y);
+                }
+            }
+        }
+
+        openCorner(open, size, 0, size - 1);
+        openCorner(open, size, size - 1, size - 1);
+        return open;
+    }
+
+    /*
+     * Opens a corner cell and connects it to the nearest room.
+     * Corners with an odd coordinate are not rooms when the size is even.
+     */
+    private static void openCorner(BitSet open, int size, int x, int y) {
+        int roomX = x & ~1;
+        int roomY = y & ~1;
+        if (x != roomX) open.set(x * size + roomY);
+        open.set(x * size + y);
+    }
+}
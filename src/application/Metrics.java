@@ -0,0 +1,190 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Process-wide counters and latency histograms for the game's hot paths: enemy searches,
+ * player path queries, turns and view updates.
+ * Metrics are off unless the pacmaze.metrics system property is true or setEnabled is
+ * called. While off, an instrumented call costs one volatile read: callers take
+ * start(), which returns 0 without reading the clock, and skip recording for a 0 start.
+ * Counters are LongAdders and histograms are LatencyHistograms, so any number of
+ * threads (the FX thread, simulation workers) can record without locking.
+ * With -Dpacmaze.metrics.file=<file> a snapshot is appended to the file every
+ * pacmaze.metrics.interval seconds (60 by default) and once more on stopPeriodicDump.
+ */
+public final class Metrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // Time per enemy step search or, with several enemies, per flow field, and the cells expanded
+    public static final LatencyHistogram ENEMY_SEARCH = histogram("enemy.search");
+    public static final LongAdder ENEMY_NODES = counter("enemy.search.nodes");
+    // Time per player range check or path query, and the cells flood filled for them
+    public static final LatencyHistogram PLAYER_PATH = histogram("player.path");
+    public static final LongAdder PLAYER_PATH_NODES = counter("player.path.nodes");
+    // Time per played turn, from its first change to the end of the enemies' reply, recorded by Model
+    public static final LatencyHistogram TURN = histogram("turn");
+    // Time per View.update, and the board cells it repainted
+    public static final LatencyHistogram VIEW_UPDATE = histogram("view.update");
+    public static final LongAdder CELLS_REPAINTED = counter("view.cells");
+
+    private static volatile boolean enabled = Boolean.getBoolean("pacmaze.metrics");
+    private static ScheduledExecutorService dumper; // Thread writing the periodic dumps, null if none
+    private static Path dumpFile; // File the periodic dumps are appended to
+
+    private Metrics() {
+    }
+
+    /*
+     * Gets or creates the counter with the given name.
+     *
+     * @param name The counter name
+     * @return The counter, shared by everyone asking for this name
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /*
+     * Gets or creates the latency histogram with the given name.
+     *
+     * @param name The histogram name
+     * @return The histogram, shared by everyone asking for this name
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static boolean isEnabled() { return enabled; }
+    public static void setEnabled(boolean on) { enabled = on; }
+
+    /*
+     * Starts timing an instrumented call.
+     *
+     * @return The current System.nanoTime(), or 0 if metrics are disabled
+     */
+    public static long start() {
+        if (!enabled) return 0;
+        long now = System.nanoTime();
+        return now != 0 ? now : 1;
+    }
+
+    /*
+     * Takes a consistent-enough copy of all metrics: each value is read atomically, but
+     * values may be recorded between reading one metric and the next.
+     *
+     * @return The snapshot
+     */
+    public static Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new Snapshot(Instant.now(), counterValues, histogramValues);
+    }
+
+    /*
+     * Enables metrics and starts the periodic dump if pacmaze.metrics.file is set.
+     * Does nothing if the property is missing or a dump is already running.
+     */
+    public static synchronized void startConfiguredDump() {
+        String file = System.getProperty("pacmaze.metrics.file");
+        if (file == null || dumper != null) return;
+        long interval = Long.getLong("pacmaze.metrics.interval", 60);
+        enabled = true;
+        dumpFile = Paths.get(file);
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(Metrics::dump, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /*
+     * Stops the periodic dump, if one is running, after writing a final snapshot.
+     */
+    public static synchronized void stopPeriodicDump() {
+        if (dumper == null) return;
+        dumper.shutdownNow();
+        dumper = null;
+        dump();
+    }
+
+    /*
+     * Appends a snapshot to the dump file.
+     */
+    private static void dump() {
+        try {
+            Files.write(dumpFile, snapshot().toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Immutable copy of all counters and histograms at one point in time.
+     */
+    public static class Snapshot {
+        private final Instant time; // When the snapshot was taken
+        private final Map<String, Long> counters; // Counter values by name
+        private final Map<String, LatencyHistogram.Snapshot> histograms; // Histogram copies by name
+
+        private Snapshot(Instant time, Map<String, Long> counters, Map<String, LatencyHistogram.Snapshot> histograms) {
+            this.time = time;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        public Instant getTime() { return time; }
+        public Map<String, Long> getCounters() { return counters; }
+        public Map<String, LatencyHistogram.Snapshot> getHistograms() { return histograms; }
+
+        /*
+         * Gets a counter's value.
+         *
+         * @param name The counter name
+         * @return The value, 0 for an unknown counter
+         */
+        public long getCounter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        /*
+         * Gets a histogram's copy.
+         *
+         * @param name The histogram name
+         * @return The copy, or null for an unknown histogram
+         */
+        public LatencyHistogram.Snapshot getHistogram(String name) {
+            return histograms.get(name);
+        }
+
+        /*
+         * Formats the snapshot as a timestamp line followed by one line per metric.
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("metrics ").append(time).append('\n');
+            counters.forEach((name, value) -> text.append("  ").append(name).append(' ').append(value).append('\n'));
+            histograms.values().forEach(histogram -> text.append("  ").append(histogram).append('\n'));
+            return text.toString();
+        }
+    }
+}
@@ -1,14 +1,32 @@
 package application;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class Model {
-	public static final int SIZE = 20; // Size of the game grid
-	private Cell[][] grid; // 2D array representing the game grid
+	public static final int SIZE = 20; // Size of the hardcoded game grid
+	public static final int CHEST_SCORE = 10; // Points for collecting a chest
+	
+	// Bits of the flags word in a snapshot
+	private static final int SNAPSHOT_HARDCODED = 1;
+	private static final int SNAPSHOT_ENEMY_SLOWED = 2;
+	private static final int SNAPSHOT_GAME_WON = 4;
+	private static final int SNAPSHOT_GAME_ENDED = 8;
+	private static final int SNAPSHOT_ROUTES_ENABLED = 16;
+	private static final int SNAPSHOT_ROUTES_SAVED = 32;
+	private static final int SNAPSHOT_STRATEGY_SHIFT = 6; // Three bits: path finder strategy ordinal + 1, 0 for the default
+	private final int size; // Width and height of this game's grid
+	private final boolean hardcoded; // Whether the grid is the hardcoded layout
+	private final long seed; // Seed of this game; equal seeds give identical games
+	private final SplittableRandom random; // Source of all randomness in this game
+	private final GameParameters parameters; // Difficulty settings: lives, items, speeds and enemy count
+	private PackedGrid grid; // Bit-packed game grid holding walls, items and the finish
     private Player player; // Player object representing the player's position
-    private Enemy enemy; // Enemy object representing the enemy's position
-    private ArrayList<Position> chests; // List of chest positions
-    private ArrayList<Position> clocks; // List of clock positions
+    private final int enemyCount; // Number of enemies chasing the player
+    private List<Enemy> enemies; // Enemies; the first one spawns at the maze's enemy start
+    private Position playerStart; // Where the player starts and respawns
+    private List<Position> enemyStarts; // Where each enemy starts and respawns
+    private int[] enemiesOnCell; // Number of enemies standing on each cell, null with a single enemy
     private Position finish; // Position of the finish point
     private int playerLives; // Number of lives the player has
     private int score; // Player's current score
@@ -17,83 +35,231 @@ public class Model {
     private boolean gameWon; // Flag indicating if the game is won
     private boolean lifeLost; // Flag indicating if a life was just lost
     private boolean gameEnded; // To track if the game has ended
+    private boolean turnInProgress; // Whether the turn in progress has made a change
+    private long turnStarted; // Metrics.start() at the first change of the turn in progress, 0 if not timed
+    private TurnEvent turnEvent; // Flight Recorder event of the turn in progress, null before its first change or if not recorded
+    private int turnStartLives; // Lives the player had when the turn in progress began
+    private int turnPlayerSteps; // Player steps in the turn in progress
+    private int turnEnemySteps; // Enemy steps in the turn in progress
 
     // Pathfinding variables
     private List<Position> currentPath; // Current calculated path
-    private Stack<Position> playerMoveHistory; // Stack to store player's move history for undo
+    private MoveRange moveRange; // Cached flood fill of the cells the player can reach this turn
+    private final UndoHistory history; // Changes made by each recent turn, for undo and redo
+    private PathFinder enemyPathFinder; // Reusable search engine used to chase the player without a routing table
+    private PathFinder.Strategy pathFinderStrategy; // Search strategy chosen for this game, null for the default
+    private boolean routingTableEnabled; // Whether a single enemy is routed through a routing table
+    private RoutingTable routingTable; // Precomputed next-hop table, null until first used or when disabled
+    private FlowField flowField; // Shared distance field, used instead of the above when there are several enemies
+    private DangerMap dangerMap; // Distance from the nearest enemy to every cell, allocated on first use
+    private boolean dangerStale = true; // Whether an enemy has moved since dangerMap was computed
+    private static RoutingTable hardcodedRoutes; // Table for the hardcoded maze, shared by all games
+    private CellChangeSet changes; // Cells changed since the view last repainted
+    private final GameLog log; // Turn count and, if recording, every change made to this game, for replays
 
     /*
      * Constructor for the Model class.
-     * Initializes the game state and sets up the initial maze.
+     * Initializes the game state and sets up the hardcoded maze with a fresh seed,
+     * which can be read back with getSeed() to replay the same game.
      */
     public Model() {
-        grid = new Cell[SIZE][SIZE];
-        chests = new ArrayList<>();
-        clocks = new ArrayList<>();
-        playerLives = 3;
+        this(System.nanoTime());
+    }
+    
+    /*
+     * Constructor for a reproducible game on the hardcoded maze.
+     * 
+     * @param seed The seed for item placement; equal seeds give identical games
+     */
+    public Model(long seed) {
+        this(seed, GameParameters.DEFAULT);
+    }
+    
+    /*
+     * Constructor for a reproducible game on the hardcoded maze with custom difficulty.
+     * Enemies beyond the first start on random free cells far from the player.
+     * 
+     * @param seed The seed for item placement; equal seeds give identical games
+     * @param parameters The difficulty settings
+     */
+    public Model(long seed, GameParameters parameters) {
+        this(SIZE, true, seed, parameters);
+        initializeHardcodedMaze();
+        initializePathfinding(true);
+    }
+    
+    /*
+     * Constructor for a game on a procedurally generated maze.
+     * The player starts in the top-left corner, the enemy in the bottom-right corner
+     * and the finish is in the top-right corner.
+     * 
+     * @param size The width and height of the maze
+     * @param seed The seed for the maze and item placement; equal seeds give identical games
+     */
+    public Model(int size, long seed) {
+        this(size, seed, 1);
+    }
+    
+    /*
+     * Constructor for a game with several enemies on a procedurally generated maze.
+     * The first enemy starts in the bottom-right corner; the others start on random
+     * free cells far from the player.
+     * 
+     * @param size The width and height of the maze
+     * @param seed The seed for the maze and item placement; equal seeds give identical games
+     * @param enemyCount The number of enemies, at least 1
+     */
+    public Model(int size, long seed, int enemyCount) {
+        this(size, seed, GameParameters.DEFAULT.withEnemyCount(enemyCount));
+    }
+    
+    /*
+     * Constructor for a game with custom difficulty on a procedurally generated maze.
+     * 
+     * @param size The width and height of the maze
+     * @param seed The seed for the maze and item placement; equal seeds give identical games
+     * @param parameters The difficulty settings, including the number of enemies
+     */
+    public Model(int size, long seed, GameParameters parameters) {
+        this(size, false, seed, parameters);
+        initializeGeneratedMaze();
+        initializePathfinding(true);
+    }
+    
+    /*
+     * Initializes the game state shared by all mazes.
+     * 
+     * @param size The width and height of the maze
+     * @param hardcoded Whether the hardcoded layout will be loaded
+     * @param seed The seed for all random choices in the game
+     * @param parameters The difficulty settings
+     */
+    private Model(int size, boolean hardcoded, long seed, GameParameters parameters) {
+        this.size = size;
+        this.hardcoded = hardcoded;
+        this.seed = seed;
+        this.parameters = parameters;
+        this.enemyCount = parameters.getEnemyCount();
+        random = new SplittableRandom(seed);
+        grid = new PackedGrid(size);
+        enemies = new ArrayList<>();
+        enemyStarts = new ArrayList<>();
+        // A single enemy is found by its position; only several need a count per cell
+        enemiesOnCell = enemyCount > 1 ? new int[size * size] : null;
+        playerLives = parameters.getLives();
         score = 0;
         enemySlowed = false;
         slowedTurnsRemaining = 0;
         gameWon = false;
         currentPath = new ArrayList<>();        
-        playerMoveHistory = new Stack<>();
+        history = new UndoHistory(enemyCount);
         lifeLost = false;
         gameEnded = false;
-        initializeHardcodedMaze();
-        
+        changes = new CellChangeSet(size * size);
+        log = new GameLog(hardcoded, size, seed, parameters);
+    }
+    
+    /*
+     * Creates the player's and enemy's pathfinding structures once the maze is loaded.
+     * The search engine and flow field hold several arrays the size of the maze, so they are
+     * only allocated by the first enemy move that needs them.
+     * 
+     * @param routingTableEnabled Whether to route a single enemy through the routing table
+     */
+    private void initializePathfinding(boolean routingTableEnabled) {
+        moveRange = new MoveRange(grid, parameters.getPlayerRange());
+        setRoutingTableEnabled(routingTableEnabled);
+    }
+    
+    /*
+     * Enables or disables the precomputed routing table for enemy moves.
+     * The walls never change during a game, so the table is built once, by the first
+     * single-enemy move that needs it, and then answers every enemy step with a lookup.
+     * Mazes with more than RoutingTable.MAX_CELLS walkable cells keep searching (see
+     * setPathFinderStrategy).
+     * 
+     * @param enabled true to route the enemy through the table, false to search
+     * @return true if the routing table is in use after the call
+     */
+    public boolean setRoutingTableEnabled(boolean enabled) {
+        routingTableEnabled = enabled && RoutingTable.fits(grid);
+        if (!routingTableEnabled) {
+            routingTable = null;
+        }
+        return routingTableEnabled;
+    }
+    
+    /*
+     * Selects how a single enemy searches for the player when no routing table is used.
+     * By default the enemy keeps one incremental search across turns and repairs it as
+     * both sides move (see IncrementalPathFinder).
+     * 
+     * @param strategy The search strategy, or null for the default
+     */
+    public void setPathFinderStrategy(PathFinder.Strategy strategy) {
+        pathFinderStrategy = strategy;
+        enemyPathFinder = null;
+    }
+    
+    /*
+     * Gets the routing table of the hardcoded maze, building it on first use.
+     * Every game on that maze has the same walls, so one table serves all of them.
+     * 
+     * @param grid A freshly loaded grid of the hardcoded maze
+     * @return The shared routing table, or null if the maze is too large for one
+     */
+    private static synchronized RoutingTable getHardcodedRoutes(PackedGrid grid) {
+        if (hardcodedRoutes == null && RoutingTable.fits(grid)) {
+            hardcodedRoutes = new RoutingTable(grid);
+        }
+        return hardcodedRoutes;
     }
     
     /*
      * Calculates a path from the player's current position to the target position.
-     * Uses a breadth-first search algorithm to find the shortest path.
+     * The cells within the player's range are flood filled once per player position and
+     * cached, so repeated hovers and clicks during a turn only follow parent pointers.
      * 
      * @param target The target position to reach
-     * @return A list of positions representing the path to the target
+     * @return A list of positions representing the path to the target, excluding the
+     *         player's cell; empty if the target is out of range or unreachable
      */
     public List<Position> calculatePathTo(Position target) {
+        return pathTo(target.x, target.y);
+    }
+    
+    /*
+     * Fills currentPath with the path from the player to a cell, see calculatePathTo.
+     */
+    private List<Position> pathTo(int x, int y) {
+        PathSearchEvent event = Recording.beginPathSearch();
+        long started = Metrics.start();
         currentPath.clear();
-        // Check if the move is valid and within range
-        if (!isValidMove(target.x, target.y) || manhattanDistance(player, target) > 3) {
-            return currentPath;
+        moveRange.appendPath(player.x, player.y, x, y, currentPath);
+        if (started != 0) {
+            Metrics.PLAYER_PATH.recordSince(started);
+            Metrics.PLAYER_PATH_NODES.add(moveRange.getNodesExpanded());
         }
-
-        Queue<List<Position>> queue = new LinkedList<>();
-        Set<Position> visited = new HashSet<>();
-
-        // Initialize the search with the player's current position
-        List<Position> initialPath = new ArrayList<>();
-        initialPath.add(new Position(player.x, player.y));
-        queue.offer(initialPath);
-        visited.add(new Position(player.x, player.y));
-
-        while (!queue.isEmpty()) {
-            List<Position> path = queue.poll();
-            Position current = path.get(path.size() - 1);
-
-            // If we've reached the target, return the path
-            if (current.equals(target)) {
-                currentPath = path.subList(1, path.size()); // Exclude the starting position
-                return currentPath;
-            }
-
-            // If the path is within the allowed range, explore neighbors
-            if (path.size() <= 3) {
-                int[][] directions = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}}; // Right, Down, Left, Up
-                for (int[] dir : directions) {
-                    int newX = current.x + dir[0];
-                    int newY = current.y + dir[1];
-                    Position newPos = new Position(newX, newY);
-                    if (isValidMove(newX, newY) && !visited.contains(newPos)) {
-                        List<Position> newPath = new ArrayList<>(path);
-                        newPath.add(newPos);
-                        queue.offer(newPath);
-                        visited.add(newPos);
-                    }
-                }
-            }
+        if (event != null && event.shouldCommit()) {
+            commitPlayerSearch(event, x, y);
         }
-
-        return currentPath; // Return empty path if no valid path found
+        return currentPath;
+    }
+    
+    /*
+     * Fills in and commits the event of a player path query or move check.
+     * 
+     * @param event The event begun before the query
+     * @param x The row of the queried cell
+     * @param y The column of the queried cell
+     */
+    private void commitPlayerSearch(PathSearchEvent event, int x, int y) {
+        event.algorithm = moveRange.getClass().getSimpleName();
+        event.start = player.x * size + player.y;
+        event.goal = x * size + y;
+        event.nodesExpanded = moveRange.getNodesExpanded(); // Read first: the distance query below hits the cached fill
+        event.pathLength = moveRange.distanceTo(player.x, player.y, x, y);
+        event.commit();
     }
 
     /*
@@ -103,15 +269,24 @@ public class Model {
      * @return true if the move was successful, false otherwise
      */
     public boolean movePlayerToPosition(Position target) {
+        return movePlayerTo(target.x, target.y);
+    }
+    
+    /*
+     * Moves the player along the shortest path to a cell within range.
+     * 
+     * @param x The row of the target cell
+     * @param y The column of the target cell
+     * @return true if the move was successful, false otherwise
+     */
+    private boolean movePlayerTo(int x, int y) {
     	if (gameEnded) return false; // Prevent movement if the game has ended
     	
-        List<Position> path = calculatePathTo(target);
+        List<Position> path = pathTo(x, y);
         if (!path.isEmpty()) {
             for (Position pos : path) {
-                playerMoveHistory.push(new Position(player.x, player.y));
-                player.x = pos.x;
-                player.y = pos.y;
-                handleCellEffect(pos);
+                stepPlayer(pos.x, pos.y);
+                handleCellEffect(pos.x, pos.y);
             }
             checkGameEnd(); // Check if the game has ended after the move
             return true;
@@ -120,58 +295,124 @@ public class Model {
     }
 
     /*
-     * Undoes the player's last move if possible.
+     * Plays a sequence of turns in one call. Each command (see TurnBatch) moves the player
+     * and then the enemies, like a click in the game; a command the player cannot carry
+     * out is skipped without an enemy turn. Changed cells keep collecting in the change
+     * set, so the view repaints the whole batch once.
      * 
-     * @return true if the move was undone, false if no moves to undo
+     * @param commands The encoded commands
+     * @param from The index of the first command to play
+     * @param count The number of commands to play
+     * @param results Receives one packed result per played command, starting at index 0
+     * @return The number of commands played; fewer than count if the game ended first
      */
-    public boolean undoPlayerMove() {
-        if (!playerMoveHistory.isEmpty()) {
-            Position previousPosition = playerMoveHistory.pop();
-            player.x = previousPosition.x;
-            player.y = previousPosition.y;
-            return true;
+    public int playTurns(int[] commands, int from, int count, int[] results) {
+        int played = 0;
+        while (played < count && !gameEnded) {
+            int command = commands[from + played];
+            int livesBefore = playerLives;
+            boolean moved;
+            if (command >= 0) {
+                moved = command < size * size && movePlayerTo(command / size, command % size);
+            } else if (command == TurnBatch.PASS) {
+                moved = true;
+            } else {
+                int direction = TurnBatch.stepDirection(command);
+                if (direction < 0) {
+                    throw new IllegalArgumentException("Invalid turn command " + command);
+                }
+                moved = movePlayer(GameLog.DX[direction], GameLog.DY[direction]);
+            }
+            if (moved) {
+                moveEnemy();
+            }
+            
+            int flags = moved ? TurnBatch.MOVED : 0;
+            if (playerLives < livesBefore) flags |= TurnBatch.LIFE_LOST;
+            if (gameWon) flags |= TurnBatch.WON;
+            else if (playerLives <= 0) flags |= TurnBatch.LOST;
+            results[played++] = TurnBatch.packResult(flags, playerLives, score);
         }
-        return false;
+        return played;
     }
 
     /*
-     * Checks if a given position is a valid move target for the player.
+     * Takes back the most recent turn: the player's moves, the items they picked up, the
+     * enemies' moves and any life lost, restoring the whole game state from before it.
+     * A turn whose enemy move has not happened yet is closed and taken back as well.
      * 
-     * @param target The position to check
-     * @return true if the position is a valid move target, false otherwise
+     * @return true if a turn was undone, false if there is nothing to undo
      */
-    public boolean isValidMoveTarget(Position target) {
-        return isValidMove(target.x, target.y) && manhattanDistance(player, target) <= 3;
+    public boolean undoTurn() {
+        closeTurn();
+        discardTurn(); // A turn cut short by the undo is not a played turn
+        long record = history.undo();
+        if (record < 0) return false;
+        log.append(GameLog.UNDO, 0);
+        applyTurn(record, false);
+        return true;
     }
 
     /*
-     * Calculates the Manhattan distance between two positions.
+     * Plays the most recently undone turn again. Any new move made after the undo
+     * discards the turns that could have been redone.
      * 
-     * @param a The first position
-     * @param b The second position
-     * @return The Manhattan distance between the two positions
+     * @return true if a turn was redone, false if there is nothing to redo
      */
-    private int manhattanDistance(Position a, Position b) {
-        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    public boolean redoTurn() {
+        closeTurn();
+        discardTurn();
+        long record = history.redo();
+        if (record < 0) return false;
+        log.append(GameLog.REDO, 0);
+        applyTurn(record, true);
+        return true;
+    }
+
+    /*
+     * Checks if a given position is a valid move target for the player.
+     * 
+     * @param target The position to check
+     * @return true if the position is a valid move target, false otherwise
+     */
+    public boolean isValidMoveTarget(Position target) {
+        PathSearchEvent event = Recording.beginPathSearch();
+        long started = Metrics.start();
+        boolean valid = moveRange.distanceTo(player.x, player.y, target.x, target.y) >= 0;
+        if (started != 0) {
+            Metrics.PLAYER_PATH.recordSince(started);
+            Metrics.PLAYER_PATH_NODES.add(moveRange.getNodesExpanded());
+        }
+        if (event != null && event.shouldCommit()) {
+            commitPlayerSearch(event, target.x, target.y);
+        }
+        return valid;
     }
 
     /*
      * Handles the effect of moving to a cell.
      * This includes collecting chests, activating clocks, and reaching the finish.
+     * Takes the coordinates rather than a Position so a player step allocates nothing.
      * 
-     * @param pos The position of the cell to handle
-     */
-    private void handleCellEffect(Position pos) {
-        if (grid[pos.x][pos.y] == Cell.CHEST) {
-            score += 10;
-            chests.remove(pos);
-            grid[pos.x][pos.y] = Cell.EMPTY;
-        } else if (grid[pos.x][pos.y] == Cell.CLOCK) {
+     * @param x The row of the cell to handle
+     * @param y The column of the cell to handle
+     */
+    private void handleCellEffect(int x, int y) {
+        openTurn();
+        int cell = x * size + y;
+        Cell item = grid.removeItem(x, y);
+        if (item == Cell.CHEST) {
+            log.append(GameLog.CHEST, 0);
+            history.itemRemoved(cell, false);
+            score += CHEST_SCORE;
+            changes.add(cell);
+        } else if (item == Cell.CLOCK) {
+            log.append(GameLog.CLOCK, 0);
+            history.itemRemoved(cell, true);
             enemySlowed = true;
-            slowedTurnsRemaining = 3;
-            clocks.remove(pos);
-            grid[pos.x][pos.y] = Cell.EMPTY;
-        } else if (grid[pos.x][pos.y] == Cell.FINISH) {
+            slowedTurnsRemaining = parameters.getSlowedTurns();
+            changes.add(cell);
+        } else if (grid.getCell(cell) == Cell.FINISH) {
             gameWon = true;
         }
     }
@@ -181,12 +422,7 @@ public class Model {
      * This method sets up the walls, player, enemy, and finish positions.
      */
     private void initializeHardcodedMaze() {
-        // Initialize all cells as walls
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                grid[i][j] = Cell.WALL;
-            }
-        }
+        // All cells start out as walls in a new PackedGrid
 
         // Define the maze (hardcoded)
         String[] mazeRows = new String[] {
@@ -225,71 +461,153 @@ public class Model {
                 char cell = mazeRows[i].charAt(j);
                 switch (cell) {
                     case 'P':
-                        grid[i][j] = Cell.EMPTY;
+                        grid.setCell(i, j, Cell.EMPTY);
                         player = new Player(i, j);
+                        playerStart = new Position(i, j);
                         break;
                     case 'E':
-                        grid[i][j] = Cell.EMPTY;
-                        enemy = new Enemy(i, j);
+                        grid.setCell(i, j, Cell.EMPTY);
+                        addEnemy(i, j);
                         break;
                     case 'F':
-                        grid[i][j] = Cell.FINISH;
+                        grid.setCell(i, j, Cell.FINISH);
                         finish = new Position(i, j);
                         break;
                     case '_':
-                        grid[i][j] = Cell.EMPTY;
+                        grid.setCell(i, j, Cell.EMPTY);
                         break;
                     case '#':
-                        grid[i][j] = Cell.WALL;
+                        grid.setCell(i, j, Cell.WALL);
                         break;
                 }
             }
         }
 
-        // Place items
+        // Place extra enemies and items
+        placeEnemies();
         placeItems();
     }
 
     /*
-     * Places chests and clocks randomly in empty cells of the maze.
+     * Initializes the maze from the procedural generator, seeded from this game's random source.
      */
-    private void placeItems() {
-        Random rand = new Random();
-        // Place 5 chests
-        for (int i = 0; i < 5; i++) {
-            placeItem(Cell.CHEST);
+    private void initializeGeneratedMaze() {
+        grid = new PackedGrid(size, MazeGenerator.generate(size, random.nextLong()));
+        
+        playerStart = new Position(0, 0);
+        player = new Player(playerStart.x, playerStart.y);
+        addEnemy(size - 1, size - 1);
+        finish = new Position(0, size - 1);
+        grid.setCell(finish.x, finish.y, Cell.FINISH);
+        
+        // Place extra enemies and items
+        placeEnemies();
+        placeItems();
+    }
+
+    /*
+     * Adds an enemy that starts and respawns on the given cell.
+     */
+    private void addEnemy(int x, int y) {
+        enemies.add(new Enemy(x, y));
+        enemyStarts.add(new Position(x, y));
+        countEnemies(x * size + y, 1);
+    }
+
+    /*
+     * Adjusts the number of enemies standing on a cell, if several enemies are counted.
+     */
+    private void countEnemies(int cell, int delta) {
+        if (enemiesOnCell != null) {
+            enemiesOnCell[cell] += delta;
         }
-        // Place 3 clocks
-        for (int i = 0; i < 3; i++) {
-            placeItem(Cell.CLOCK);
+    }
+
+    /*
+     * Checks whether any enemy stands on a cell.
+     */
+    private boolean hasEnemyOn(int cell) {
+        if (enemiesOnCell != null) return enemiesOnCell[cell] > 0;
+        if (enemies.isEmpty()) return false;
+        Enemy enemy = enemies.get(0);
+        return enemy.x * size + enemy.y == cell;
+    }
+
+    /*
+     * Spawns the enemies beyond the first on random free cells.
+     * Cells at least `size` steps (Manhattan distance) from the player are preferred;
+     * if the maze has too few of them, any other free cell is used.
+     */
+    private void placeEnemies() {
+        if (enemies.size() >= enemyCount) return;
+        int[] free = grid.walkableCells();
+        placeEnemies(free, size);
+        placeEnemies(free, 1);
+    }
+
+    /*
+     * Spawns enemies on random free cells at least a given distance from the player
+     * until enemyCount is reached or no candidate cells are left.
+     * 
+     * @param free Candidate cells, drawn from in random order
+     * @param minDistance The smallest allowed Manhattan distance to the player
+     */
+    private void placeEnemies(int[] free, int minDistance) {
+        int remaining = free.length;
+        while (enemies.size() < enemyCount && remaining > 0) {
+            int i = random.nextInt(remaining);
+            int cell = free[i];
+            free[i] = free[--remaining];
+            free[remaining] = cell; // Keep the cell for a later pass
+
+            int x = cell / size;
+            int y = cell % size;
+            if (grid.getCell(x, y) == Cell.EMPTY && !hasEnemyOn(cell) &&
+                Math.abs(x - player.x) + Math.abs(y - player.y) >= minDistance) {
+                addEnemy(x, y);
+            }
         }
     }
 
     /*
-     * Places a single item (chest or clock) in a random empty cell.
+     * Places chests and clocks randomly in empty cells of the maze.
+     * Cells are drawn without replacement from the list of walkable cells, so every
+     * item gets a cell unless the maze runs out of free cells.
+     */
+    private void placeItems() {
+        int[] free = grid.walkableCells();
+        int remaining = free.length;
+        // Place the chests, then the clocks
+        remaining = placeItem(Cell.CHEST, parameters.getChests(), free, remaining);
+        placeItem(Cell.CLOCK, parameters.getClocks(), free, remaining);
+    }
+
+    /*
+     * Places copies of an item (chest or clock) in random empty cells.
      * 
      * @param item The type of item to place (CHEST or CLOCK)
+     * @param count The number of copies to place
+     * @param free Candidate cells; the first `remaining` entries have not been drawn yet
+     * @param remaining The number of candidates not drawn yet
+     * @return The number of candidates left after placing the items
      */
-    private void placeItem(Cell item) {
-        Random rand = new Random();
-        int attempts = 0;
-        while (attempts < 100) {
-            int x = rand.nextInt(SIZE);
-            int y = rand.nextInt(SIZE);
-            if (grid[x][y] == Cell.EMPTY && 
+    private int placeItem(Cell item, int count, int[] free, int remaining) {
+        while (count > 0 && remaining > 0) {
+            // Draw a random candidate and swap it out of the undrawn part of the list
+            int i = random.nextInt(remaining);
+            int cell = free[i];
+            free[i] = free[--remaining];
+
+            int x = cell / size;
+            int y = cell % size;
+            if (grid.getCell(x, y) == Cell.EMPTY && 
                 (x != player.x || y != player.y) && 
-                (x != enemy.x || y != enemy.y) &&
-                (finish == null || x != finish.x || y != finish.y)) {
-                grid[x][y] = item;
-                if (item == Cell.CHEST) {
-                    chests.add(new Position(x, y));
-                } else if (item == Cell.CLOCK) {
-                    clocks.add(new Position(x, y));
-                }
-                break;
+                !hasEnemyOn(cell)) {
+                grid.setCell(x, y, item);
+                count--;
             }
-            attempts++;
         }
+        return remaining;
     }
 
     /*
@@ -306,21 +624,8 @@ public class Model {
         int newY = player.y + dy;
         
         if (isValidMove(newX, newY)) {
-            if (grid[newX][newY] == Cell.CHEST) {
-                score += 10;
-                chests.remove(new Position(newX, newY));
-                grid[newX][newY] = Cell.EMPTY;
-            } else if (grid[newX][newY] == Cell.CLOCK) {
-                enemySlowed = true;
-                slowedTurnsRemaining = 3;
-                clocks.remove(new Position(newX, newY));
-                grid[newX][newY] = Cell.EMPTY;
-            } else if (grid[newX][newY] == Cell.FINISH) {
-                gameWon = true;
-            }
-            
-            player.x = newX;
-            player.y = newY;
+            stepPlayer(newX, newY);
+            handleCellEffect(newX, newY);
             checkGameEnd(); // Check if the game has ended after the move
             return true;
         }
@@ -328,120 +633,268 @@ public class Model {
     }
 
     /*
-     * Moves the enemy towards the player using A* pathfinding.
-     * The enemy moves twice as fast when not slowed.
+     * Moves the enemies towards the player.
+     * A single enemy uses the routing table or a path search; several enemies share one flow field
+     * computed from the player's cell, so the turn costs one search however many there are.
+     * The enemies take one step per turn while slowed and enemySpeed steps otherwise.
+     * An enemy already on the player's cell, because the player walked into it, stays put;
+     * with one enemy or several, any enemy on the player's cell once the enemies have
+     * moved catches the player.
      */
     public void moveEnemy() {
-    	if (gameEnded) return; // Prevent enemy movement if the game has ended
+    	if (gameEnded) {
+    	    // Prevent enemy movement if the game has ended; a game-ending player move ends the turn
+    	    if (turnInProgress) {
+    	        finishTurn(log.getTurns() + 1); // The enemies' TURN_END is never logged
+    	    }
+    	    return;
+    	}
     	
-        if (player.x == enemy.x && player.y == enemy.y) return; // Don't move if already on player
-        
-        int moveDistance = enemySlowed ? 1 : 2;
+        int moveDistance = enemySlowed ? 1 : parameters.getEnemySpeed();
         
-        // Use A* pathfinding to move towards player
-        for (int i = 0; i < moveDistance; i++) {
-            Position nextMove = getNextMoveTowardsPlayer();
-            if (nextMove != null) {
-                enemy.x = nextMove.x;
-                enemy.y = nextMove.y;
+        if (enemies.size() == 1) {
+            Enemy enemy = enemies.get(0);
+            // Step towards the player along the routing table or a path search, until on the player
+            for (int i = 0; i < moveDistance && (player.x != enemy.x || player.y != enemy.y); i++) {
+                int nextMove = getNextMoveTowardsPlayer(enemy);
+                if (nextMove >= 0) {
+                    stepEnemy(0, nextMove / size, nextMove % size);
+                }
+            }
+        } else {
+            // The player stands still during the enemy turn, so one field serves every step
+            if (flowField == null) {
+                flowField = new FlowField(grid);
+            }
+            PathSearchEvent event = Recording.beginPathSearch();
+            long started = Metrics.start();
+            int goal = player.x * size + player.y;
+            flowField.compute(goal, enemies);
+            if (started != 0) {
+                Metrics.ENEMY_SEARCH.recordSince(started);
+                Metrics.ENEMY_NODES.add(flowField.getCellsVisited());
+            }
+            if (event != null && event.shouldCommit()) {
+                commitFlowFieldSearch(event, goal);
+            }
+            for (int i = 0; i < moveDistance; i++) {
+                for (int j = 0; j < enemies.size(); j++) {
+                    Enemy enemy = enemies.get(j);
+                    int nextMove = flowField.nextStep(enemy.x * size + enemy.y);
+                    if (nextMove >= 0) {
+                        stepEnemy(j, nextMove / size, nextMove % size);
+                    }
+                }
             }
         }
         
-        if (enemySlowed) {
+        checkCollision();
+        checkGameEnd(); // Check if the game has ended after the enemy move
+        endEnemyTurn();
+    }
+    
+    /*
+     * Fills in and commits the event of a flow field computation.
+     * The field serves every enemy, so the event names the nearest one's path.
+     * 
+     * @param event The event begun before the computation
+     * @param goal The player's cell the field was computed from
+     */
+    private void commitFlowFieldSearch(PathSearchEvent event, int goal) {
+        int nearest = -1;
+        int nearestDistance = -1;
+        for (Enemy enemy : enemies) {
+            int cell = enemy.x * size + enemy.y;
+            int distance = flowField.distanceTo(cell);
+            if (distance >= 0 && (nearestDistance < 0 || distance < nearestDistance)) {
+                nearest = cell;
+                nearestDistance = distance;
+            }
+        }
+        event.algorithm = flowField.getClass().getSimpleName();
+        event.start = nearest;
+        event.goal = goal;
+        event.nodesExpanded = flowField.getCellsVisited();
+        event.pathLength = nearestDistance;
+        event.commit();
+    }
+    
+    /*
+     * Ends a played enemy turn, which uses up one slowed turn, and records it,
+     * see closeEnemyTurn and finishTurn.
+     */
+    private void endEnemyTurn() {
+        closeEnemyTurn(true);
+        finishTurn(log.getTurns());
+    }
+    
+    /*
+     * Closes an enemy turn in the log and the undo history and counts down the slow timer.
+     * 
+     * @param slowTick Whether the turn uses up one slowed turn; always so for turns played now,
+     *                 logs from before an enemy on the player caught them may say otherwise
+     */
+    private void closeEnemyTurn(boolean slowTick) {
+        log.append(GameLog.TURN_END, slowTick ? GameLog.SLOW_TICK : 0);
+        if (slowTick && enemySlowed) {
+            openTurn();
             slowedTurnsRemaining--;
             if (slowedTurnsRemaining <= 0) {
                 enemySlowed = false;
             }
         }
+        closeTurn();
+    }
+    
+    /*
+     * Records the turn that just ended: its time, from its first change to the end of the
+     * enemies' reply (see Metrics.TURN), and its TurnEvent. Every way of playing a turn,
+     * from Controller, Simulation or GameServer, ends here; replayed turns do not.
+     * 
+     * @param turn The number of the turn, counting from 1
+     */
+    private void finishTurn(int turn) {
+        Metrics.TURN.recordSince(turnStarted);
+        // A turn in which nothing changed gets an event without duration
+        TurnEvent event = turnEvent != null ? turnEvent : Recording.beginTurn();
+        if (event != null && event.shouldCommit()) {
+            event.turn = turn;
+            event.playerSteps = turnPlayerSteps;
+            event.enemySteps = turnEnemySteps;
+            event.outcome = TurnEvent.outcomeOf(gameWon, gameEnded, turnInProgress && playerLives < turnStartLives);
+            event.commit();
+        }
+        discardTurn();
+    }
+    
+    /*
+     * Forgets the timing and event of the turn in progress without recording them.
+     */
+    private void discardTurn() {
+        turnInProgress = false;
+        turnStarted = 0;
+        turnEvent = null;
+        turnPlayerSteps = 0;
+        turnEnemySteps = 0;
+    }
+    
+    /*
+     * Starts recording the current turn's changes for undo, unless that has already begun.
+     * Called before every change to the game state.
+     */
+    private void openTurn() {
+        if (!history.isOpen()) {
+            turnInProgress = true;
+            turnStarted = Metrics.start();
+            turnEvent = Recording.beginTurn();
+            turnStartLives = playerLives;
+            history.beginTurn(player.x * size + player.y, score, playerLives, slowedTurnsRemaining, getUndoFlags());
+        }
+    }
+    
+    /*
+     * Stores the changes of the current turn as one undo record, if any were made.
+     */
+    private void closeTurn() {
+        if (history.isOpen()) {
+            history.endTurn(player.x * size + player.y, score, playerLives, slowedTurnsRemaining, getUndoFlags(),
+                    enemies, size);
+        }
+    }
+    
+    /*
+     * Gets the end-of-game flags in the form UndoHistory records them.
+     */
+    private int getUndoFlags() {
+        return (gameWon ? UndoHistory.GAME_WON : 0) | (gameEnded ? UndoHistory.GAME_ENDED : 0);
+    }
+    
+    /*
+     * Applies one undo record to the game in either direction.
+     * Only the cells named in the record are touched, so this costs as much as the
+     * turn changed and does not allocate.
+     * 
+     * @param record The record position returned by UndoHistory.undo or redo
+     * @param redo true to move to the state after the turn, false to the state before it
+     */
+    private void applyTurn(long record, boolean redo) {
+        int side = redo ? 1 : 0;
+        int playerCell = history.get(record + UndoHistory.PLAYER + side);
+        setPlayerPosition(playerCell / size, playerCell % size);
+        score = history.get(record + UndoHistory.SCORE + side);
+        playerLives = history.get(record + UndoHistory.LIVES + side);
+        slowedTurnsRemaining = history.get(record + UndoHistory.SLOWED_TURNS + side);
+        enemySlowed = slowedTurnsRemaining > 0;
+        int flags = history.get(record + UndoHistory.FLAGS + side);
+        gameWon = (flags & UndoHistory.GAME_WON) != 0;
+        gameEnded = (flags & UndoHistory.GAME_ENDED) != 0;
+        lifeLost = false;
+        
+        long position = record + UndoHistory.ITEMS;
+        int itemCount = history.get(position++);
+        for (int i = 0; i < itemCount; i++) {
+            int item = history.get(position++);
+            int cell = item >> 1;
+            if (redo) {
+                grid.removeItem(cell / size, cell % size);
+            } else {
+                grid.setCell(cell / size, cell % size, (item & UndoHistory.CLOCK_ITEM) != 0 ? Cell.CLOCK : Cell.CHEST);
+            }
+            changes.add(cell);
+        }
         
-        checkCollision();
-        checkGameEnd(); // Check if the game has ended after the enemy move
+        int movedCount = history.get(position++);
+        for (int i = 0; i < movedCount; i++) {
+            Enemy enemy = enemies.get(history.get(position));
+            int cell = history.get(position + (redo ? 2 : 1));
+            setEnemyPosition(enemy, cell / size, cell % size);
+            position += 3;
+        }
     }
 
     /*
-	 * Uses A* pathfinding to determine the next move for the enemy towards the player.
+	 * Determines the next move for the enemy towards the player.
+	 * Uses the precomputed routing table when available, otherwise a search on the
+	 * game's reusable PathFinder, so no objects are allocated per call.
 	 * 
-	 * @return The next position the enemy should move to
+	 * @param enemy The enemy to move
+	 * @return The cell index (x * size + y) the enemy should move to, or -1 if no path exists
 	 */
-	private Position getNextMoveTowardsPlayer() {
-	    // Priority queue to store nodes to be evaluated, sorted by f-score
-	    PriorityQueue<Node> openSet = new PriorityQueue<>();
-	    // Set to store already evaluated positions
-	    Set<Position> closedSet = new HashSet<>();
-	    // Map to store the most efficient previous step for each position
-	    Map<Position, Position> cameFrom = new HashMap<>();
-	    // Map to store the cost of getting from start to each position
-	    Map<Position, Integer> gScore = new HashMap<>();
-	    
-	    // Initialize start and goal positions
-	    Position start = new Position(enemy.x, enemy.y);
-	    Position goal = new Position(player.x, player.y);
-	    
-	    // Add start node to the open set with its f-score (g-score + heuristic)
-	    openSet.offer(new Node(start, 0 + heuristic(start, goal)));
-	    gScore.put(start, 0);
-	    
-	    // Define possible movement directions (right, down, left, up)
-	    int[][] directions = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
-	    
-	    while (!openSet.isEmpty()) {
-	        // Get the node with the lowest f-score from the open set
-	        Node current = openSet.poll();
-	        Position currentPos = current.position;
-	        
-	        // If we've reached the goal, backtrack to find the next move
-	        if (currentPos.equals(goal)) {
-	            Position next = currentPos;
-	            while (cameFrom.get(next) != null && !cameFrom.get(next).equals(start)) {
-	                next = cameFrom.get(next);
-	            }
-	            return next;
+	private int getNextMoveTowardsPlayer(Enemy enemy) {
+	    PathSearchEvent event = Recording.beginPathSearch();
+	    long started = Metrics.start();
+	    int start = enemy.x * size + enemy.y;
+	    int goal = player.x * size + player.y;
+	    PathFinder finder;
+	    if (routingTableEnabled) {
+	        if (routingTable == null) {
+	            routingTable = hardcoded ? getHardcodedRoutes(grid) : new RoutingTable(grid);
 	        }
-	        
-	        // Add current position to closed set (already evaluated)
-	        closedSet.add(currentPos);
-	        
-	        // Check all neighboring positions
-	        for (int[] dir : directions) {
-	            int nextX = currentPos.x + dir[0];
-	            int nextY = currentPos.y + dir[1];
-	            
-	            // If the move is valid (not a wall and within grid)
-	            if (isValidMove(nextX, nextY)) {
-	                Position neighbor = new Position(nextX, nextY);
-	                // Skip if we've already evaluated this position
-	                if (closedSet.contains(neighbor)) continue;
-	                
-	                // Calculate tentative g-score for this neighbor
-	                int tentativeGScore = gScore.get(currentPos) + 1;
-	                
-	                // If this path to neighbor is better than any previous one, record it
-	                if (!gScore.containsKey(neighbor) || tentativeGScore < gScore.get(neighbor)) {
-	                    cameFrom.put(neighbor, currentPos);
-	                    gScore.put(neighbor, tentativeGScore);
-	                    int fScore = tentativeGScore + heuristic(neighbor, goal);
-	                    openSet.offer(new Node(neighbor, fScore));
-	                }
-	            }
+	        finder = routingTable;
+	    } else {
+	        if (enemyPathFinder == null) {
+	            PathFinder.Strategy strategy = pathFinderStrategy != null ? pathFinderStrategy : PathFinder.Strategy.INCREMENTAL;
+	            enemyPathFinder = strategy.create(grid);
 	        }
+	        finder = enemyPathFinder;
 	    }
-	    
-	    // If no path is found, return null
-	    return null;
+	    int next = finder.nextStep(start, goal);
+	    if (started != 0) {
+	        Metrics.ENEMY_SEARCH.recordSince(started);
+	        Metrics.ENEMY_NODES.add(finder.getNodesExpanded());
+	    }
+	    if (event != null && event.shouldCommit()) {
+	        event.algorithm = finder.getClass().getSimpleName();
+	        event.start = start;
+	        event.goal = goal;
+	        event.nodesExpanded = finder.getNodesExpanded();
+	        // The routing table may be shared between threads and keeps no path length
+	        event.pathLength = finder == routingTable ? routingTable.distance(start, goal) : finder.getPathLength();
+	        event.commit();
+	    }
+	    return next;
 	}
 	
-	/*
-	 * Calculates the heuristic (estimated distance) between two positions.
-	 * Uses Manhattan distance as the heuristic.
-	 *
-	 * @param a The starting position
-	 * @param b The target position
-	 * @return The Manhattan distance between the two positions
-	 */
-	private int heuristic(Position a, Position b) {
-	    return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
-	}
-
 	/*
 	 * Checks if a move to the given coordinates is valid.
 	 * A move is valid if it's within the grid bounds and not a wall.
@@ -451,26 +904,189 @@ public class Model {
 	 * @return true if the move is valid, false otherwise
 	 */
 	private boolean isValidMove(int x, int y) {
-	    return x >= 0 && x < SIZE && y >= 0 && y < SIZE && grid[x][y] != Cell.WALL;
+	    return grid.isWalkable(x, y);
 	}
 
 	/*
-	 * Checks for a collision between the player and the enemy.
+	 * Checks for a collision between the player and any enemy.
 	 * If a collision occurs, decrements player lives, sets the lifeLost flag,
-	 * and resets player and enemy positions.
+	 * and resets the player and all enemies to their start positions.
 	 */
 	private void checkCollision() {
-	    if (player.x == enemy.x && player.y == enemy.y) {
-	        playerLives--;
-	        lifeLost = true;
-	        // Reset positions after collision
-	        player.x = 0;
-	        player.y = 0;
-	        enemy.x = SIZE-1;
-	        enemy.y = SIZE-1;
+	    if (hasEnemyOn(player.x * size + player.y)) {
+	        loseLife();
+	    }
+	}
+
+	/*
+	 * Takes a life after a collision and sends everyone back to their start positions.
+	 */
+	private void loseLife() {
+	    log.append(GameLog.COLLISION, 0);
+	    openTurn();
+	    for (int i = 0; i < enemies.size(); i++) {
+	        Enemy enemy = enemies.get(i);
+	        history.enemyMoving(i, enemy.x * size + enemy.y);
+	    }
+	    playerLives--;
+	    lifeLost = true;
+	    // Reset positions after collision
+	    setPlayerPosition(playerStart.x, playerStart.y);
+	    for (int i = 0; i < enemies.size(); i++) {
+	        Position start = enemyStarts.get(i);
+	        setEnemyPosition(enemies.get(i), start.x, start.y);
+	    }
+	}
+
+	/*
+	 * Moves the player one step to a neighbouring cell and logs the step.
+	 */
+	private void stepPlayer(int x, int y) {
+	    log.append(GameLog.PLAYER_STEP, GameLog.direction(x - player.x, y - player.y));
+	    openTurn();
+	    setPlayerPosition(x, y);
+	    turnPlayerSteps++;
+	}
+
+	/*
+	 * Moves an enemy one step to a neighbouring cell and logs the step.
+	 * Staying on the same cell is not a step and is not logged.
+	 */
+	private void stepEnemy(int index, int x, int y) {
+	    Enemy enemy = enemies.get(index);
+	    if (enemy.x == x && enemy.y == y) return;
+	    log.appendEnemyStep(index, GameLog.direction(x - enemy.x, y - enemy.y));
+	    openTurn();
+	    history.enemyMoving(index, enemy.x * size + enemy.y);
+	    setEnemyPosition(enemy, x, y);
+	    turnEnemySteps++;
+	}
+
+	/*
+	 * Applies one logged event to this game, as GameReplayer does when fast-forwarding.
+	 * The event goes through the same mutation helpers as live play, so it is logged
+	 * again and the replayed game ends up with the same log as the original.
+	 * 
+	 * @param type The event type (see GameLog)
+	 * @param payload The event payload
+	 * @param enemy The enemy index of an enemy step, 0 otherwise
+	 * @throws IllegalArgumentException if the event cannot happen in the current state
+	 */
+	void replayEvent(int type, int payload, int enemy) {
+	    switch (type) {
+	        case GameLog.PLAYER_STEP: {
+	            int direction = payload & 3;
+	            int x = player.x + GameLog.DX[direction];
+	            int y = player.y + GameLog.DY[direction];
+	            if (!isValidMove(x, y)) {
+	                throw new IllegalArgumentException("Logged player step into a wall at " + x + "," + y);
+	            }
+	            stepPlayer(x, y);
+	            break;
+	        }
+	        case GameLog.CHEST:
+	        case GameLog.CLOCK:
+	            if (grid.getCell(player.x, player.y) != (type == GameLog.CHEST ? Cell.CHEST : Cell.CLOCK)) {
+	                throw new IllegalArgumentException("Logged item is missing at " + player.x + "," + player.y);
+	            }
+	            handleCellEffect(player.x, player.y);
+	            break;
+	        case GameLog.ENEMY_STEP: {
+	            if (enemy < 0 || enemy >= enemies.size()) {
+	                throw new IllegalArgumentException("Logged step of unknown enemy " + enemy);
+	            }
+	            int direction = payload & 3;
+	            int x = enemies.get(enemy).x + GameLog.DX[direction];
+	            int y = enemies.get(enemy).y + GameLog.DY[direction];
+	            if (!isValidMove(x, y)) {
+	                throw new IllegalArgumentException("Logged enemy step into a wall at " + x + "," + y);
+	            }
+	            stepEnemy(enemy, x, y);
+	            break;
+	        }
+	        case GameLog.COLLISION:
+	            loseLife();
+	            break;
+	        case GameLog.TURN_END:
+	            // A replayed turn is not recorded as a played one
+	            closeEnemyTurn((payload & GameLog.SLOW_TICK) != 0);
+	            discardTurn();
+	            break;
+	        case GameLog.GAME_END:
+	            gameWon = (payload & GameLog.WON) != 0;
+	            checkGameEnd();
+	            break;
+	        case GameLog.UNDO:
+	            if (!undoTurn()) {
+	                throw new IllegalArgumentException("Logged undo with no turn to undo");
+	            }
+	            break;
+	        case GameLog.REDO:
+	            if (!redoTurn()) {
+	                throw new IllegalArgumentException("Logged redo with no turn to redo");
+	            }
+	            break;
+	        default:
+	            throw new IllegalArgumentException("Unknown event type " + type);
 	    }
 	}
 
+	/*
+	 * Moves the player to the given cell and records both cells as changed.
+	 */
+	private void setPlayerPosition(int x, int y) {
+	    changes.add(player.x * size + player.y);
+	    player.x = x;
+	    player.y = y;
+	    changes.add(x * size + y);
+	}
+
+	/*
+	 * Moves an enemy to the given cell and records both cells as changed.
+	 */
+	private void setEnemyPosition(Enemy enemy, int x, int y) {
+	    dangerStale = true;
+	    countEnemies(enemy.x * size + enemy.y, -1);
+	    changes.add(enemy.x * size + enemy.y);
+	    enemy.x = x;
+	    enemy.y = y;
+	    countEnemies(x * size + y, 1);
+	    changes.add(x * size + y);
+	}
+
+	/*
+	 * Gets the number of enemy turns until an enemy could stand on a cell, taking the
+	 * enemies' current speed and remaining slowed turns into account.
+	 * The underlying danger map is recomputed with one search at most once per enemy
+	 * move, so repeated queries during a turn cost O(1).
+	 *
+	 * @param x The row of the cell
+	 * @param y The column of the cell
+	 * @return 0 if an enemy is on the cell, the number of turns, or -1 if no enemy can reach it
+	 */
+	public int getEnemyTurnsTo(int x, int y) {
+	    if (dangerMap == null) {
+	        dangerMap = new DangerMap(grid);
+	    }
+	    if (dangerStale) {
+	        dangerMap.compute(enemies);
+	        dangerStale = false;
+	    }
+	    return dangerMap.turnsTo(x * size + y, enemySlowed ? slowedTurnsRemaining : 0, parameters.getEnemySpeed());
+	}
+
+	/*
+	 * Checks if an enemy could catch the player on a cell in its next turn.
+	 *
+	 * @param x The row of the cell
+	 * @param y The column of the cell
+	 * @return true if an enemy can reach the cell within one turn, false otherwise
+	 */
+	public boolean isThreatened(int x, int y) {
+	    int turns = getEnemyTurnsTo(x, y);
+	    return turns >= 0 && turns <= 1;
+	}
+
 	/*
 	 * Checks if a life was lost in the most recent turn.
 	 * Resets the lifeLost flag after checking.
@@ -485,29 +1101,209 @@ public class Model {
 	
 	// Checks for game-ending conditions (victory or game over) and updates the game state accordingly.
     private void checkGameEnd() {
-        if (gameWon || playerLives == 0) {
+        if (!gameEnded && (gameWon || playerLives == 0)) {
+            openTurn();
             gameEnded = true;
-            //endMusicGame();
+            log.append(GameLog.GAME_END, gameWon ? GameLog.WON : 0);
+        }
+    }
+
+    /*
+     * Gets the number of bytes writeSnapshot produces for the current state.
+     * 
+     * @return The snapshot body size in bytes
+     */
+    int snapshotSize() {
+        int bytes = 4 * Integer.BYTES + Long.BYTES; // Size, flags, seed, enemy count
+        bytes += GameParameters.SNAPSHOT_INTS * Integer.BYTES;
+        bytes += 3 * Integer.BYTES; // Lives, score, slowed turns
+        bytes += 2 * Integer.BYTES; // Player start and position
+        bytes += enemies.size() * 2 * Integer.BYTES; // Enemy starts and positions
+        bytes += history.snapshotSize();
+        bytes += grid.snapshotSize();
+        if (isRoutingTableSaved()) {
+            bytes += routingTable.snapshotSize();
         }
+        bytes += log.snapshotSize();
+        return bytes;
     }
     
+    /*
+     * Writes the game state as a snapshot body (see GameSnapshot).
+     * Positions are written as cell indices; the grid and a generated maze's routing
+     * table are written as raw words so they can be restored without recomputation.
+     * The event log comes last, so a continued game keeps its complete record.
+     * 
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        int flags = 0;
+        if (hardcoded) flags |= SNAPSHOT_HARDCODED;
+        if (enemySlowed) flags |= SNAPSHOT_ENEMY_SLOWED;
+        if (gameWon) flags |= SNAPSHOT_GAME_WON;
+        if (gameEnded) flags |= SNAPSHOT_GAME_ENDED;
+        if (routingTableEnabled) flags |= SNAPSHOT_ROUTES_ENABLED;
+        if (isRoutingTableSaved()) flags |= SNAPSHOT_ROUTES_SAVED;
+        if (pathFinderStrategy != null) flags |= (pathFinderStrategy.ordinal() + 1) << SNAPSHOT_STRATEGY_SHIFT;
+        
+        buffer.putInt(size);
+        buffer.putInt(flags);
+        buffer.putLong(seed);
+        buffer.putInt(enemies.size());
+        parameters.writeSnapshot(buffer);
+        buffer.putInt(playerLives);
+        buffer.putInt(score);
+        buffer.putInt(slowedTurnsRemaining);
+        buffer.putInt(playerStart.x * size + playerStart.y);
+        buffer.putInt(player.x * size + player.y);
+        for (int i = 0; i < enemies.size(); i++) {
+            Position start = enemyStarts.get(i);
+            Enemy enemy = enemies.get(i);
+            buffer.putInt(start.x * size + start.y);
+            buffer.putInt(enemy.x * size + enemy.y);
+        }
+        history.writeSnapshot(buffer);
+        grid.writeSnapshot(buffer);
+        if (isRoutingTableSaved()) {
+            routingTable.writeSnapshot(buffer);
+        }
+        log.writeSnapshot(buffer);
+    }
     
-    //Doesn't work ;-;
-    //Make the game crash once the player lose or win, not worth having for the demo
-    //    public void endMusicGame() {
-    //        // Stop the game music
-//        if (view.getGameMusicPlayer() != null) {
-//            view.getGameMusicPlayer().stop();
-//        }
-//    }
+    /*
+     * Restores a game from a snapshot body written by writeSnapshot.
+     * 
+     * @param buffer The buffer to read from, positioned at the start of the body
+     * @return The restored game
+     * @throws IllegalArgumentException if the snapshot holds impossible values
+     */
+    static Model readSnapshot(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int flags = buffer.getInt();
+        long seed = buffer.getLong();
+        int enemyCount = buffer.getInt();
+        GameParameters parameters = GameParameters.readSnapshot(buffer);
+        if (size < 1 || size > MazeGenerator.MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid maze size " + size);
+        }
+        if (enemyCount < 1 || enemyCount > parameters.getEnemyCount()) {
+            throw new IllegalArgumentException("Invalid enemy count " + enemyCount);
+        }
+        // More enemies than cells cannot be placed, and would size the undo buffers by a corrupt value
+        if (parameters.getEnemyCount() > size * size) {
+            throw new IllegalArgumentException("Invalid enemy count " + parameters.getEnemyCount() + " for maze size " + size);
+        }
+        Model model = new Model(size, (flags & SNAPSHOT_HARDCODED) != 0, seed, parameters);
+        model.enemySlowed = (flags & SNAPSHOT_ENEMY_SLOWED) != 0;
+        model.gameWon = (flags & SNAPSHOT_GAME_WON) != 0;
+        model.gameEnded = (flags & SNAPSHOT_GAME_ENDED) != 0;
+        model.playerLives = buffer.getInt();
+        model.score = buffer.getInt();
+        model.slowedTurnsRemaining = buffer.getInt();
+        
+        model.playerStart = model.readPosition(buffer);
+        Position player = model.readPosition(buffer);
+        model.player = new Player(player.x, player.y);
+        for (int i = 0; i < enemyCount; i++) {
+            Position start = model.readPosition(buffer);
+            Position position = model.readPosition(buffer);
+            model.addEnemy(start.x, start.y);
+            model.countEnemies(start.x * size + start.y, -1);
+            model.enemies.get(i).x = position.x;
+            model.enemies.get(i).y = position.y;
+            model.countEnemies(position.x * size + position.y, 1);
+        }
+        model.history.readSnapshot(buffer, size * size, enemyCount);
+        
+        model.grid = PackedGrid.readSnapshot(buffer, size);
+        int finish = model.grid.getFinish();
+        model.finish = finish < 0 ? null : new Position(finish / size, finish % size);
+        // Nobody can stand or respawn in a wall, and path searches from a wall find nothing
+        model.checkWalkable(model.playerStart, "Player start");
+        model.checkWalkable(model.player, "Player");
+        for (int i = 0; i < enemyCount; i++) {
+            model.checkWalkable(model.enemyStarts.get(i), "Start of enemy " + i);
+            model.checkWalkable(model.enemies.get(i), "Enemy " + i);
+        }
+        if ((flags & SNAPSHOT_ROUTES_SAVED) != 0) {
+            model.routingTable = RoutingTable.readSnapshot(buffer, model.grid);
+        }
+        model.log.readSnapshot(buffer);
+        model.initializePathfinding((flags & SNAPSHOT_ROUTES_ENABLED) != 0);
+        int strategy = (flags >>> SNAPSHOT_STRATEGY_SHIFT & 7) - 1;
+        if (strategy >= PathFinder.Strategy.values().length) {
+            throw new IllegalArgumentException("Unknown path finder strategy " + strategy);
+        }
+        model.pathFinderStrategy = strategy < 0 ? null : PathFinder.Strategy.values()[strategy];
+        return model;
+    }
     
+    /*
+     * Reads a cell index from a snapshot and checks that it lies inside the grid.
+     */
+    private Position readPosition(ByteBuffer buffer) {
+        int cell = buffer.getInt();
+        if (cell < 0 || cell >= size * size) {
+            throw new IllegalArgumentException("Cell " + cell + " is outside the grid");
+        }
+        return new Position(cell / size, cell % size);
+    }
+    
+    /*
+     * Checks that a position read from a snapshot is not a wall.
+     * 
+     * @param position The position to check
+     * @param what Whose position it is, for the error message
+     * @throws IllegalArgumentException if the position is a wall
+     */
+    private void checkWalkable(Position position, String what) {
+        if (!grid.isWalkable(position.x, position.y)) {
+            throw new IllegalArgumentException(what + " is in a wall at " + position.x + "," + position.y);
+        }
+    }
+    
+    /*
+     * Checks whether the routing table is written into snapshots.
+     * The hardcoded maze's table is shared and rebuilt cheaply, so only generated mazes save
+     * theirs, and only once an enemy move has built it.
+     */
+    private boolean isRoutingTableSaved() {
+        return routingTable != null && !hardcoded;
+    }
 
     // Getter methods for accessing private fields
-	public Cell[][] getGrid() { return grid; }
+	public int getSize() { return size; }
+	public long getSeed() { return seed; }
+	public GameParameters getParameters() { return parameters; }
+	public PackedGrid getGrid() { return grid; }
 	public Player getPlayer() { return player; }
-	public Enemy getEnemy() { return enemy; }
+	public Enemy getEnemy() { return enemies.get(0); }
+	public List<Enemy> getEnemies() { return enemies; }
+	public Position getFinish() { return finish; }
 	public int getPlayerLives() { return playerLives; }
 	public int getScore() { return score; }
+	public boolean isEnemySlowed() { return enemySlowed; }
+	public int getSlowedTurnsRemaining() { return slowedTurnsRemaining; }
+	UndoHistory getHistory() { return history; }
+
+	/*
+	 * Gets the cells that changed since the view last repainted.
+	 * The view clears the set after painting it.
+	 *
+	 * @return The set of changed cells
+	 */
+	public CellChangeSet getChanges() { return changes; }
+	public GameLog getLog() { return log; }
+	
+	/*
+	 * Switches recording of this game's events on or off (see GameLog). Games are not
+	 * recorded by default; recording must start before the first move.
+	 * 
+	 * @param on true to record every following change
+	 * @throws IllegalStateException if recording is switched on after the game has started
+	 */
+	public void setRecording(boolean on) { log.setRecording(on); }
+	public boolean isRecording() { return log.isRecording(); }
 
 	/*
 	 * Checks if the game is over (player has no lives left).
@@ -523,6 +1319,15 @@ public class Model {
 	 */
 	public boolean isGameWon() { return gameWon; }
 
+	/*
+	 * Checks if any enemy stands on a cell.
+	 *
+	 * @param x The row of the cell
+	 * @param y The column of the cell
+	 * @return true if at least one enemy is on the cell, false otherwise
+	 */
+	public boolean isEnemyAt(int x, int y) { return hasEnemyOn(x * size + y); }
+
 	/*
 	 * Represents a position on the game grid.
 	 */
@@ -554,37 +1359,17 @@ public class Model {
 	        return x == pos.x && y == pos.y;
 	    }
 	    
-	}
-
-	/*
-	 * Represents a node in the A* pathfinding algorithm.
-	 */
-	private static class Node implements Comparable<Node> {
-	    Position position;
-	    int fScore;
-	    
-	    /*
-	     * Constructor for Node.
-	     *
-	     * @param position The position of this node
-	     * @param fScore The f-score of this node
-	     */
-	    Node(Position position, int fScore) {
-	        this.position = position;
-	        this.fScore = fScore;
-	    }
-	    
 	    /*
-	     * Compares this Node with another Node based on their f-scores.
+	     * Computes a hash code consistent with equals, so positions can be used
+	     * as keys in hash-based collections.
 	     *
-	     * @param other The other Node to compare with
-	     * @return A negative integer, zero, or a positive integer as this Node's f-score
-	     *         is less than, equal to, or greater than the other Node's f-score
+	     * @return The hash code for this position
 	     */
 	    @Override
-	    public int compareTo(Node other) {
-	        return Integer.compare(this.fScore, other.fScore);
+	    public int hashCode() {
+	        return 31 * x + y;
 	    }
+	    
 	}
 
 	/*
@@ -0,0 +1,163 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Cached bounded flood fill of the cells the player can reach in one turn.
+ * A breadth-first search of at most `radius` steps is run once from the player's cell
+ * and its distances and parent pointers are kept in a small (2 * radius + 1)^2 window
+ * centred on that cell. Hovering or clicking a cell during the turn is then a table
+ * lookup plus a walk along at most `radius` parent pointers. The fill is recomputed
+ * only when it is asked about a different origin cell or after invalidate().
+ */
+public class MoveRange {
+    private final PackedGrid grid; // Maze the fill runs on
+    private final int radius; // Largest number of steps in one move
+    private final int width; // Width and height of the window (2 * radius + 1)
+    private final int[] cellOffsets; // Cell index offset of each direction (right, down, left, up)
+    private final int[] slotOffsets; // Window slot offset of each direction (right, down, left, up)
+
+    private final int[] distance; // Steps from the origin to each window slot, -1 if unreachable
+    private final int[] parent; // Previous window slot on a shortest path to each slot
+    private final int[] queueCells; // BFS queue of cell indices
+    private final int[] queueSlots; // Window slots matching queueCells
+    private final int[] steps; // Scratch space for rebuilding a path
+
+    private int originX; // Row of the cell the fill was computed from
+    private int originY; // Column of the cell the fill was computed from
+    private boolean valid; // Whether distance and parent describe the current origin
+    private int nodesExpanded; // Number of cells expanded by the last query, 0 if it used the cached fill
+
+    /*
+     * Constructor for MoveRange.
+     *
+     * @param grid The maze grid to flood fill
+     * @param radius The largest number of steps in one move
+     */
+    public MoveRange(PackedGrid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.width = 2 * radius + 1;
+        int size = grid.getSize();
+        cellOffsets = new int[] {1, size, -1, -size};
+        slotOffsets = new int[] {1, width, -1, -width};
+        distance = new int[width * width];
+        parent = new int[width * width];
+        queueCells = new int[width * width];
+        queueSlots = new int[width * width];
+        steps = new int[radius];
+    }
+
+    /*
+     * Forces the next query to recompute the fill, for example after the grid changed.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /*
+     * Gets the number of cells the most recent query expanded.
+     *
+     * @return The node expansion count, 0 if the query was answered from the cached fill
+     */
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /*
+     * Calculates the number of steps from the origin to a cell.
+     *
+     * @param originX The row the move starts from
+     * @param originY The column the move starts from
+     * @param x The row of the target cell
+     * @param y The column of the target cell
+     * @return The number of steps, or -1 if the target cannot be reached within the radius
+     */
+    public int distanceTo(int originX, int originY, int x, int y) {
+        fill(originX, originY);
+        int slot = slotOf(x, y);
+        return slot < 0 ? -1 : distance[slot];
+    }
+
+    /*
+     * Appends a shortest path from the origin to a cell, excluding the origin itself.
+     * Nothing is appended if the target cannot be reached within the radius.
+     *
+     * @param originX The row the move starts from
+     * @param originY The column the move starts from
+     * @param x The row of the target cell
+     * @param y The column of the target cell
+     * @param path The list to append the positions to
+     * @return The number of positions appended
+     */
+    public int appendPath(int originX, int originY, int x, int y, List<Model.Position> path) {
+        fill(originX, originY);
+        int slot = slotOf(x, y);
+        if (slot < 0 || distance[slot] <= 0) return 0;
+
+        // Walk back to the origin, then emit the steps in forward order
+        int count = distance[slot];
+        for (int i = count - 1; i >= 0; i--) {
+            steps[i] = slot;
+            slot = parent[slot];
+        }
+        for (int i = 0; i < count; i++) {
+            path.add(new Model.Position(originX + steps[i] / width - radius, originY + steps[i] % width - radius));
+        }
+        return count;
+    }
+
+    /*
+     * Maps a cell to its window slot.
+     *
+     * @return The slot index, or -1 if the cell lies outside the window
+     */
+    private int slotOf(int x, int y) {
+        int wx = x - originX + radius;
+        int wy = y - originY + radius;
+        if (wx < 0 || wx >= width || wy < 0 || wy >= width) return -1;
+        return wx * width + wy;
+    }
+
+    /*
+     * Runs the bounded breadth-first search unless it is already cached for this origin.
+     */
+    private void fill(int x, int y) {
+        nodesExpanded = 0;
+        if (valid && x == originX && y == originY) return;
+        originX = x;
+        originY = y;
+        valid = true;
+
+        Arrays.fill(distance, -1);
+        if (!grid.isWalkable(x, y)) return;
+
+        int start = radius * width + radius;
+        distance[start] = 0;
+        queueCells[0] = x * grid.getSize() + y;
+        queueSlots[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int cell = queueCells[head];
+            int slot = queueSlots[head++];
+            int nextDistance = distance[slot] + 1;
+            if (nextDistance > radius) continue;
+
+            int mask = grid.openNeighbours(cell);
+            while (mask != 0) {
+                int d = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                int neighborSlot = slot + slotOffsets[d];
+                if (distance[neighborSlot] >= 0) continue;
+
+                distance[neighborSlot] = nextDistance;
+                parent[neighborSlot] = slot;
+                queueCells[tail] = cell + cellOffsets[d];
+                queueSlots[tail++] = neighborSlot;
+            }
+        }
+        nodesExpanded = head;
+    }
+}
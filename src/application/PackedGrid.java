@@ -0,0 +1,284 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * Compact bit-packed game grid.
+ * Walls, chests and clocks are each kept in their own bitmap (one bit per cell, 64 cells
+ * per long, indexed x * size + y), and the finish is a single cell index. A 2000x2000
+ * maze fits in about 1.5 MB, and walkability checks and neighbour expansion are plain
+ * shifts and masks on a single array with no per-row indirection.
+ */
+public class PackedGrid {
+    // Bits of the neighbour mask returned by openNeighbours (right, down, left, up),
+    // in the same order as the movement directions used everywhere else
+    public static final int RIGHT = 1;
+    public static final int DOWN = 2;
+    public static final int LEFT = 4;
+    public static final int UP = 8;
+
+    private final int size; // Width and height of the grid
+    private final int cellCount; // Number of cells (size * size)
+    private final long[] walls; // Wall bitmap
+    private final long[] chests; // Chest bitmap
+    private final long[] clocks; // Clock bitmap
+    private int finish = -1; // Cell index of the finish, -1 if none
+
+    /*
+     * Constructor for PackedGrid.
+     * Creates a grid where every cell is a wall.
+     *
+     * @param size The width and height of the grid
+     */
+    public PackedGrid(int size) {
+        this.size = size;
+        this.cellCount = size * size;
+        int words = (cellCount + 63) >>> 6;
+        walls = new long[words];
+        chests = new long[words];
+        clocks = new long[words];
+        Arrays.fill(walls, -1L);
+    }
+
+    /*
+     * Constructor for PackedGrid from a set of open cells.
+     *
+     * @param size The width and height of the grid
+     * @param open The walkable cells, indexed x * size + y
+     */
+    public PackedGrid(int size, BitSet open) {
+        this(size);
+        long[] openWords = open.toLongArray();
+        for (int i = 0; i < walls.length; i++) {
+            walls[i] = i < openWords.length ? ~openWords[i] : -1L;
+        }
+    }
+
+    /*
+     * Checks whether a cell is inside the grid and not a wall.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     * @return true if the cell can be walked on
+     */
+    public boolean isWalkable(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size && !test(walls, x * size + y);
+    }
+
+    /*
+     * Checks whether a cell index refers to a walkable cell.
+     *
+     * @param cell The cell index, which must be inside the grid
+     * @return true if the cell is not a wall
+     */
+    public boolean isWalkable(int cell) {
+        return !test(walls, cell);
+    }
+
+    /*
+     * Computes which of the four neighbours of a cell are inside the grid and walkable.
+     *
+     * @param cell The cell index
+     * @return A mask of RIGHT, DOWN, LEFT and UP bits
+     */
+    public int openNeighbours(int cell) {
+        int y = cell % size;
+        int mask = 0;
+        if (y + 1 < size && !test(walls, cell + 1)) mask |= RIGHT;
+        if (cell + size < cellCount && !test(walls, cell + size)) mask |= DOWN;
+        if (y > 0 && !test(walls, cell - 1)) mask |= LEFT;
+        if (cell >= size && !test(walls, cell - size)) mask |= UP;
+        return mask;
+    }
+
+    /*
+     * Gets the cell index offset of a neighbour direction.
+     *
+     * @param direction One of RIGHT, DOWN, LEFT or UP
+     * @return The amount to add to a cell index to reach that neighbour
+     */
+    public int offset(int direction) {
+        switch (direction) {
+            case RIGHT: return 1;
+            case DOWN: return size;
+            case LEFT: return -1;
+            default: return -size;
+        }
+    }
+
+    /*
+     * Gets the contents of a cell.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     * @return The cell type
+     */
+    public Model.Cell getCell(int x, int y) {
+        return getCell(x * size + y);
+    }
+
+    /*
+     * Gets the contents of a cell.
+     *
+     * @param cell The cell index
+     * @return The cell type
+     */
+    public Model.Cell getCell(int cell) {
+        if (test(walls, cell)) return Model.Cell.WALL;
+        if (test(chests, cell)) return Model.Cell.CHEST;
+        if (test(clocks, cell)) return Model.Cell.CLOCK;
+        if (cell == finish) return Model.Cell.FINISH;
+        return Model.Cell.EMPTY;
+    }
+
+    /*
+     * Sets the contents of a cell.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     * @param type The new cell type
+     */
+    public void setCell(int x, int y, Model.Cell type) {
+        int cell = x * size + y;
+        assign(walls, cell, type == Model.Cell.WALL);
+        assign(chests, cell, type == Model.Cell.CHEST);
+        assign(clocks, cell, type == Model.Cell.CLOCK);
+        if (type == Model.Cell.FINISH) {
+            finish = cell;
+        } else if (cell == finish) {
+            finish = -1;
+        }
+    }
+
+    /*
+     * Removes the chest or clock from a cell, if any.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     * @return The item that was removed, or null if the cell held no item
+     */
+    public Model.Cell removeItem(int x, int y) {
+        int cell = x * size + y;
+        if (test(chests, cell)) {
+            assign(chests, cell, false);
+            return Model.Cell.CHEST;
+        }
+        if (test(clocks, cell)) {
+            assign(clocks, cell, false);
+            return Model.Cell.CLOCK;
+        }
+        return null;
+    }
+
+    /*
+     * Counts the walkable cells.
+     *
+     * @return The number of cells that are not walls
+     */
+    public int countWalkable() {
+        // Bits past the last cell are always set in the wall bitmap, so they are not counted
+        int count = 0;
+        for (long word : walls) {
+            count += Long.bitCount(~word);
+        }
+        return count;
+    }
+
+    /*
+     * Lists the walkable cells.
+     *
+     * @return The index of every cell that is not a wall, in increasing order
+     */
+    public int[] walkableCells() {
+        int[] cells = new int[countWalkable()];
+        int count = 0;
+        for (int i = 0; i < walls.length; i++) {
+            long open = ~walls[i];
+            while (open != 0) {
+                cells[count++] = (i << 6) + Long.numberOfTrailingZeros(open);
+                open &= open - 1;
+            }
+        }
+        return cells;
+    }
+
+    /*
+     * Gets the number of bytes writeSnapshot produces.
+     *
+     * @return The snapshot size in bytes
+     */
+    int snapshotSize() {
+        return Integer.BYTES + 3 * walls.length * Long.BYTES;
+    }
+
+    /*
+     * Writes the finish cell and the raw wall, chest and clock bitmaps.
+     *
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        buffer.putInt(finish);
+        GameSnapshot.putLongs(buffer, walls);
+        GameSnapshot.putLongs(buffer, chests);
+        GameSnapshot.putLongs(buffer, clocks);
+    }
+
+    /*
+     * Reads a grid written by writeSnapshot.
+     * The bits past the last cell must be walls, since countWalkable and walkableCells rely
+     * on them; chests and clocks outside the grid or under walls, and clocks under chests,
+     * cannot be reached or seen and are dropped.
+     *
+     * @param buffer The buffer to read from
+     * @param size The width and height of the grid
+     * @return The restored grid
+     * @throws IllegalArgumentException if the finish is outside the grid or on a wall,
+     *                                  or a bit past the last cell is not a wall
+     */
+    static PackedGrid readSnapshot(ByteBuffer buffer, int size) {
+        PackedGrid grid = new PackedGrid(size);
+        int finish = buffer.getInt();
+        if (finish < -1 || finish >= grid.cellCount) {
+            throw new IllegalArgumentException("Finish cell " + finish + " is outside the grid");
+        }
+        grid.finish = finish;
+        GameSnapshot.getLongs(buffer, grid.walls);
+        GameSnapshot.getLongs(buffer, grid.chests);
+        GameSnapshot.getLongs(buffer, grid.clocks);
+
+        int used = grid.cellCount & 63;
+        if (used != 0) {
+            long padding = -1L << used;
+            if ((grid.walls[grid.walls.length - 1] & padding) != padding) {
+                throw new IllegalArgumentException("Wall bitmap has open cells past the last cell");
+            }
+        }
+        if (finish >= 0 && test(grid.walls, finish)) {
+            throw new IllegalArgumentException("Finish cell " + finish + " is a wall");
+        }
+        for (int i = 0; i < grid.walls.length; i++) {
+            grid.chests[i] &= ~grid.walls[i];
+            grid.clocks[i] &= ~(grid.walls[i] | grid.chests[i]);
+        }
+        return grid;
+    }
+
+    // Getter methods for accessing private fields
+    public int getSize() { return size; }
+    public int getCellCount() { return cellCount; }
+    public int getFinish() { return finish; }
+
+    private static boolean test(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private static void assign(long[] bits, int cell, boolean value) {
+        if (value) {
+            bits[cell >>> 6] |= 1L << cell;
+        } else {
+            bits[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+}
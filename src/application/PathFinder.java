@@ -0,0 +1,58 @@
+package application;
+
+/*
+ * Strategy for finding the enemy's next step towards the player.
+ * Cells are addressed by their index (x * size + y). Implementations keep their
+ * working arrays between queries, so an instance serves one maze and one thread.
+ */
+public interface PathFinder {
+    /*
+     * Enumeration of the search strategies available for enemy pathfinding.
+     */
+    enum Strategy {
+        A_STAR, // Uni-directional A* with the Manhattan heuristic, for open grids
+        BIDIRECTIONAL_BFS, // Breadth-first search from both ends, for corridor mazes
+        JUMP_POINT, // Jump point search: fewest expansions on open grids, but its scans cost as much as A*
+        INCREMENTAL; // A* that keeps its tree between turns and repairs it; the default for a chasing enemy
+
+        /*
+         * Creates a path finder of this strategy.
+         *
+         * @param grid The maze grid to search on
+         * @return The new path finder
+         */
+        public PathFinder create(PackedGrid grid) {
+            switch (this) {
+                case BIDIRECTIONAL_BFS: return new BidirectionalBfsPathFinder(grid);
+                case JUMP_POINT: return new JumpPointPathFinder(grid);
+                case INCREMENTAL: return new IncrementalPathFinder(grid);
+                default: return new AStarPathFinder(grid);
+            }
+        }
+    }
+
+    /*
+     * Finds the first step of a shortest path between two cells.
+     *
+     * @param start The cell index to move from
+     * @param goal The cell index to move towards
+     * @return The cell index of the next step, the goal itself if start and goal are the
+     *         same cell, or -1 if the goal is unreachable
+     */
+    int nextStep(int start, int goal);
+
+    /*
+     * Gets the number of cells expanded by the most recent query.
+     *
+     * @return The node expansion count
+     */
+    int getNodesExpanded();
+
+    /*
+     * Gets the length of the shortest path found by the most recent query.
+     *
+     * @return The number of steps from start to goal, 0 if they were the same cell, or
+     *         -1 if the goal was unreachable or, for a RoutingTable, is not tracked
+     */
+    int getPathLength();
+}
@@ -0,0 +1,38 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for one path search: an enemy's next step, the flow field shared by
+ * several enemies, or the flood fill behind the player's path preview and move check.
+ * Emitted by Model for each of them, so a recording can tie a long GC pause or a stalled
+ * frame to the search that was running. Like the other PAC Maze events it is only
+ * allocated, through Recording, while it is being recorded, and its fields are only
+ * filled in when shouldCommit says the event will be written.
+ */
+@Name("pacmaze.PathSearch")
+@Label("Path Search")
+@Category({"PAC Maze", "Search"})
+@Description("Search for an enemy's next step towards the player or for the player's path to a cell")
+@StackTrace(false)
+public class PathSearchEvent extends Event {
+    @Label("Algorithm")
+    String algorithm; // Simple class name of the search, e.g. RoutingTable, FlowField or MoveRange
+
+    @Label("Start Cell")
+    int start; // Cell index the enemy moves from, for a flow field the nearest enemy's; the player's for a player search
+
+    @Label("Goal Cell")
+    int goal; // Cell index of the player, or of the cell the player's path leads to
+
+    @Label("Nodes Expanded")
+    int nodesExpanded; // Cells the search expanded, 0 for a table lookup or a cached flood fill
+
+    @Label("Path Length")
+    int pathLength; // Steps from start to goal, -1 if unreachable
+}
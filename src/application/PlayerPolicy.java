@@ -0,0 +1,15 @@
+package application;
+
+/*
+ * Strategy that decides the player's move each turn when a game is played
+ * without the user interface (see Simulation).
+ */
+public interface PlayerPolicy {
+    /*
+     * Chooses the cell the player should move to this turn.
+     *
+     * @param model The current game state
+     * @return The target position passed to Model.movePlayerToPosition, or null to skip the turn
+     */
+    Model.Position chooseMove(Model model);
+}
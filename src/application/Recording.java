@@ -0,0 +1,73 @@
+package application;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/*
+ * Creates the game's Flight Recorder events, but only while they are being recorded, so
+ * the hot paths allocate no event otherwise. The event types are looked up in a holder
+ * class the first time a check finds Flight Recorder running; until then
+ * FlightRecorder.isInitialized answers without starting it, so games, simulations and
+ * servers that are never recorded do not load the JFR metadata. That is also why the
+ * events are created here rather than by static methods on the event classes: initializing
+ * an event class starts JFR. On a runtime built without the jdk.jfr module no events are
+ * created.
+ */
+final class Recording {
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private Recording() {
+    }
+
+    /*
+     * Creates and begins a turn event if turns are being recorded.
+     *
+     * @return The begun event, or null if it would not be recorded
+     */
+    static TurnEvent beginTurn() {
+        if (!isRunning() || !EventTypes.TURN.isEnabled()) return null;
+        TurnEvent event = new TurnEvent();
+        event.begin();
+        return event;
+    }
+
+    /*
+     * Creates and begins a path search event if searches are being recorded.
+     *
+     * @return The begun event, or null if it would not be recorded
+     */
+    static PathSearchEvent beginPathSearch() {
+        if (!isRunning() || !EventTypes.PATH_SEARCH.isEnabled()) return null;
+        PathSearchEvent event = new PathSearchEvent();
+        event.begin();
+        return event;
+    }
+
+    /*
+     * Creates and begins a render event if renders are being recorded.
+     *
+     * @return The begun event, or null if it would not be recorded
+     */
+    static RenderEvent beginRender() {
+        if (!isRunning() || !EventTypes.RENDER.isEnabled()) return null;
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        return event;
+    }
+
+    /*
+     * Checks whether Flight Recorder has been started in this JVM.
+     */
+    private static boolean isRunning() {
+        return AVAILABLE && FlightRecorder.isInitialized();
+    }
+
+    /*
+     * Event types, looked up when the first check finds Flight Recorder running.
+     */
+    private static final class EventTypes {
+        static final EventType TURN = EventType.getEventType(TurnEvent.class);
+        static final EventType PATH_SEARCH = EventType.getEventType(PathSearchEvent.class);
+        static final EventType RENDER = EventType.getEventType(RenderEvent.class);
+    }
+}
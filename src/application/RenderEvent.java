@@ -0,0 +1,25 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for one View.update on the FX thread.
+ * Only allocated, through Recording, while it is being recorded.
+ */
+@Name("pacmaze.Render")
+@Label("Render")
+@Category({"PAC Maze", "View"})
+@Description("Repaint of the changed board cells and the status bar")
+@StackTrace(false)
+public class RenderEvent extends Event {
+    @Label("Cells Repainted")
+    int cellsRepainted; // Board cells painted again
+
+    @Label("Full Repaint")
+    boolean fullRepaint; // Whether the whole board was repainted
+}
@@ -0,0 +1,299 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * Precomputed all-pairs next-hop table for a static maze.
+ * Walls never change during a game, so a breadth-first search is run once from every
+ * walkable cell when the maze is loaded. For each (goal, from) pair the table stores
+ * which of the four directions leads one step closer to the goal, packed as 2 bits per
+ * entry. Walkable cells are renumbered densely so walls take no space in the table,
+ * and a connected-component id per cell tells whether a goal is reachable at all.
+ * Answering "next step towards the player" is then a single array lookup.
+ */
+public class RoutingTable implements PathFinder {
+    // Largest number of walkable cells a table is built for (4096^2 entries = 4 MB)
+    public static final int MAX_CELLS = 4096;
+
+    private final int[] offsets; // Cell index offset of each direction (right, down, left, up)
+    private final int cellCount; // Number of walkable cells
+    private final int[] cellToId; // Dense id of each grid cell, -1 for walls
+    private final int[] idToCell; // Grid cell index of each dense id
+    private final int[] component; // Connected component of each dense id
+    private final long[] nextHop; // 2-bit directions, indexed by goalId * cellCount + fromId
+
+    /*
+     * Constructor for RoutingTable.
+     * Runs one breadth-first search per walkable cell to fill the table.
+     *
+     * @param grid The maze grid to precompute routes for
+     */
+    public RoutingTable(PackedGrid grid) {
+        this(grid, null, null);
+    }
+
+    /*
+     * Numbers the walkable cells and either adopts previously computed tables or
+     * computes them.
+     *
+     * @param grid The maze grid the table is for
+     * @param savedComponents Component ids read from a snapshot, or null to compute them
+     * @param savedHops Next-hop words read from a snapshot, or null to compute them
+     */
+    private RoutingTable(PackedGrid grid, int[] savedComponents, long[] savedHops) {
+        int size = grid.getSize();
+        offsets = new int[] {1, size, -1, -size};
+        cellToId = new int[grid.getCellCount()];
+
+        // Number the walkable cells
+        int count = 0;
+        for (int cell = 0; cell < cellToId.length; cell++) {
+            cellToId[cell] = grid.isWalkable(cell) ? count++ : -1;
+        }
+        if (count > MAX_CELLS) {
+            throw new IllegalArgumentException("Maze has " + count + " walkable cells, more than " + MAX_CELLS);
+        }
+        cellCount = count;
+        idToCell = new int[count];
+        for (int cell = 0; cell < cellToId.length; cell++) {
+            if (cellToId[cell] >= 0) idToCell[cellToId[cell]] = cell;
+        }
+
+        if (savedHops != null) {
+            if (savedComponents.length != count || savedHops.length != hopWords(count)) {
+                throw new IllegalArgumentException("Saved routing table does not match the maze");
+            }
+            component = savedComponents;
+            nextHop = savedHops;
+            checkSavedRoutes(grid);
+            return;
+        }
+        component = new int[count];
+        nextHop = new long[hopWords(count)];
+
+        int[] queue = new int[count];
+        int[] visited = new int[count]; // Stamped with goalId + 1 for each search
+        Arrays.fill(component, -1);
+
+        for (int goalId = 0; goalId < count; goalId++) {
+            boolean labelComponent = component[goalId] < 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = goalId;
+            visited[goalId] = goalId + 1;
+
+            while (head < tail) {
+                int currentId = queue[head++];
+                int current = idToCell[currentId];
+                if (labelComponent) component[currentId] = goalId;
+
+                int mask = grid.openNeighbours(current);
+                while (mask != 0) {
+                    int d = Integer.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    int neighborId = cellToId[current + offsets[d]];
+                    if (visited[neighborId] == goalId + 1) continue;
+
+                    visited[neighborId] = goalId + 1;
+                    queue[tail++] = neighborId;
+                    // Stepping back from the neighbour to the current cell is the opposite direction
+                    setHop(goalId, neighborId, (d + 2) & 3);
+                }
+            }
+        }
+    }
+
+    /*
+     * Checks that the hops of an adopted table lead every cell to every goal in its
+     * component: each hop must step into a walkable neighbour of the same component, and
+     * following them must not loop. Otherwise nextStep could step into a wall and
+     * distance could never return. Each cell is followed only until it joins a path
+     * already known to reach the goal, so the check costs one step per table entry.
+     *
+     * @param grid The maze grid the table is for
+     * @throws IllegalArgumentException if a hop leaves the maze's paths or hops form a loop
+     */
+    private void checkSavedRoutes(PackedGrid grid) {
+        // Dense id of each cell's neighbour in every direction, -1 for walls and the edge
+        int[] neighbours = new int[cellCount * 4];
+        for (int id = 0; id < cellCount; id++) {
+            int cell = idToCell[id];
+            int mask = grid.openNeighbours(cell);
+            for (int d = 0; d < 4; d++) {
+                int neighborId = (mask & (1 << d)) != 0 ? cellToId[cell + offsets[d]] : -1;
+                if (neighborId >= 0 && component[neighborId] != component[id]) {
+                    throw new IllegalArgumentException("Saved routing table puts neighbouring cells " + cell + " in different components");
+                }
+                neighbours[id * 4 + d] = neighborId;
+            }
+        }
+
+        int[] reaches = new int[cellCount]; // goalId + 1 once the hops from the cell are known to reach goalId
+        int[] walked = new int[cellCount]; // Number of the last walk that passed the cell
+        int[] walk = new int[cellCount]; // Cells of the walk in progress
+        int walks = 0;
+        for (int goalId = 0; goalId < cellCount; goalId++) {
+            int mark = goalId + 1;
+            reaches[goalId] = mark;
+            for (int fromId = 0; fromId < cellCount; fromId++) {
+                if (reaches[fromId] == mark || component[fromId] != component[goalId]) continue;
+
+                walks++;
+                int length = 0;
+                for (int id = fromId; reaches[id] != mark; ) {
+                    if (walked[id] == walks) {
+                        throw new IllegalArgumentException("Saved routing table loops at cell " + idToCell[id]);
+                    }
+                    walked[id] = walks;
+                    walk[length++] = id;
+                    id = neighbours[id * 4 + getHop(goalId, id)];
+                    if (id < 0) {
+                        throw new IllegalArgumentException("Saved routing table steps into a wall from cell " + idToCell[walk[length - 1]]);
+                    }
+                }
+                for (int i = 0; i < length; i++) {
+                    reaches[walk[i]] = mark;
+                }
+            }
+        }
+    }
+
+    /*
+     * Checks whether a table can be built for the given maze.
+     *
+     * @param grid The maze grid to check
+     * @return true if the maze has at most MAX_CELLS walkable cells
+     */
+    public static boolean fits(PackedGrid grid) {
+        return grid.countWalkable() <= MAX_CELLS;
+    }
+
+    /*
+     * Looks up the first step of a shortest path between two cells.
+     *
+     * @param start The cell index to move from
+     * @param goal The cell index to move towards
+     * @return The cell index of the next step, the goal itself if start and goal are the
+     *         same cell, or -1 if the goal is unreachable
+     */
+    @Override
+    public int nextStep(int start, int goal) {
+        if (start == goal) return goal;
+        int startId = cellToId[start];
+        int goalId = cellToId[goal];
+        if (startId < 0 || goalId < 0 || component[startId] != component[goalId]) return -1;
+
+        return start + offsets[getHop(goalId, startId)];
+    }
+
+    /*
+     * Gets the number of cells expanded by the last lookup, which never searches.
+     *
+     * @return Always 0
+     */
+    @Override
+    public int getNodesExpanded() {
+        return 0;
+    }
+
+    /*
+     * Gets the path length of the last lookup, which the table does not know: one table
+     * can be shared by games on several threads, so it keeps no per-query state. Use
+     * distance instead.
+     *
+     * @return Always -1
+     */
+    @Override
+    public int getPathLength() {
+        return -1;
+    }
+
+    /*
+     * Calculates the length of a shortest path between two cells. The table stores only
+     * next hops, so this follows them to the goal, one lookup per step.
+     *
+     * @param start The cell index to move from
+     * @param goal The cell index to move towards
+     * @return The number of steps, or -1 if the goal is unreachable
+     */
+    public int distance(int start, int goal) {
+        if (start == goal) return 0;
+        int startId = cellToId[start];
+        int goalId = cellToId[goal];
+        if (startId < 0 || goalId < 0 || component[startId] != component[goalId]) return -1;
+
+        int length = 0;
+        for (int cell = start; cell != goal; cell += offsets[getHop(goalId, cellToId[cell])]) {
+            length++;
+        }
+        return length;
+    }
+
+    /*
+     * Gets the number of bytes writeSnapshot produces.
+     *
+     * @return The snapshot size in bytes
+     */
+    int snapshotSize() {
+        return Integer.BYTES + component.length * Integer.BYTES + nextHop.length * Long.BYTES;
+    }
+
+    /*
+     * Writes the component ids and the packed next-hop table.
+     * The dense cell numbering is not written; it is recomputed from the grid.
+     *
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        buffer.putInt(cellCount);
+        GameSnapshot.putInts(buffer, component);
+        GameSnapshot.putLongs(buffer, nextHop);
+    }
+
+    /*
+     * Reads a table written by writeSnapshot without running any searches. The hops are
+     * checked against the maze, see checkSavedRoutes.
+     *
+     * @param buffer The buffer to read from
+     * @param grid The restored maze grid the table belongs to
+     * @return The restored table
+     * @throws IllegalArgumentException if the saved table does not fit the maze
+     */
+    static RoutingTable readSnapshot(ByteBuffer buffer, PackedGrid grid) {
+        int count = buffer.getInt();
+        if (count < 0 || count > MAX_CELLS) {
+            throw new IllegalArgumentException("Saved routing table has " + count + " cells");
+        }
+        int[] savedComponents = new int[count];
+        long[] savedHops = new long[hopWords(count)];
+        GameSnapshot.getInts(buffer, savedComponents);
+        GameSnapshot.getLongs(buffer, savedHops);
+        return new RoutingTable(grid, savedComponents, savedHops);
+    }
+
+    /*
+     * Gets the number of walkable cells covered by the table.
+     *
+     * @return The walkable cell count
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    private static int hopWords(int count) {
+        return (int) (((long) count * count * 2 + 63) >>> 6);
+    }
+
+    private void setHop(int goalId, int fromId, int direction) {
+        long entry = (long) goalId * cellCount + fromId;
+        int word = (int) (entry >>> 5);
+        int shift = (int) (entry & 31) << 1;
+        nextHop[word] = (nextHop[word] & ~(3L << shift)) | ((long) direction << shift);
+    }
+
+    private int getHop(int goalId, int fromId) {
+        long entry = (long) goalId * cellCount + fromId;
+        return (int) (nextHop[(int) (entry >>> 5)] >>> ((int) (entry & 31) << 1)) & 3;
+    }
+}
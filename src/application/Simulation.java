@@ -0,0 +1,209 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/*
+ * Headless game runner.
+ * Plays complete games directly on Model (player move followed by enemy move, the same
+ * sequence Controller uses) without creating any JavaFX objects, and can spread large
+ * batches of independent games over a pool of worker threads.
+ */
+public class Simulation {
+    // Default limit on turns before a game is reported as unfinished
+    public static final int DEFAULT_MAX_TURNS = 500;
+
+    /*
+     * Plays a single game to the end.
+     * If the policy skips a turn or picks an unreachable cell, the enemy still moves,
+     * so a stuck policy cannot stall the game forever.
+     *
+     * @param model The game to play, in its initial state
+     * @param policy The policy choosing the player's moves
+     * @param maxTurns The number of turns after which the game is abandoned
+     * @return The result of the game
+     */
+    public static GameResult playGame(Model model, PlayerPolicy policy, int maxTurns) {
+        int turns = 0;
+        while (!isFinished(model) && turns < maxTurns) {
+            Model.Position target = policy.chooseMove(model);
+            if (target != null) {
+                model.movePlayerToPosition(target);
+            }
+            model.moveEnemy();
+            turns++;
+        }
+
+        GameResult.Outcome outcome;
+        if (model.isGameWon()) {
+            outcome = GameResult.Outcome.WON;
+        } else if (model.isGameOver()) {
+            outcome = GameResult.Outcome.LOST;
+        } else {
+            outcome = GameResult.Outcome.UNFINISHED;
+        }
+        // Only a recorded game's log is worth keeping for the whole batch
+        return new GameResult(outcome, model.getScore(), turns, model.getPlayerLives(),
+            model.isRecording() ? model.getLog() : null);
+    }
+
+    /*
+     * Plays a batch of independent games in parallel.
+     * Each worker thread gets its own policy instance and claims game indices from a
+     * shared counter, so threads never contend on game state.
+     *
+     * @param games The number of games to play
+     * @param modelFactory Creates the model for the game with the given index
+     * @param policyFactory Creates one policy per worker thread
+     * @param maxTurns The number of turns after which a game is abandoned
+     * @param threads The number of worker threads
+     * @return The result of each game, indexed like the games
+     */
+    public static GameResult[] runBatch(int games, IntFunction<Model> modelFactory,
+            Supplier<? extends PlayerPolicy> policyFactory, int maxTurns, int threads) {
+        GameResult[] results = new GameResult[games];
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    PlayerPolicy policy = policyFactory.get();
+                    int game;
+                    while ((game = nextGame.getAndIncrement()) < games) {
+                        results[game] = playGame(modelFactory.apply(game), policy, maxTurns);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Simulation batch failed", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /*
+     * Checks whether a game has reached an end state.
+     */
+    private static boolean isFinished(Model model) {
+        return model.isGameWon() || model.isGameOver();
+    }
+
+    /*
+     * Loads a snapshot for a batch, where checked exceptions cannot be thrown.
+     */
+    private static Model loadSnapshot(Path file) {
+        try {
+            return GameSnapshot.load(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Command line entry point: plays a batch of games with the greedy exit policy
+     * and prints the outcome counts and throughput.
+     * Usage: Simulation [games] [threads] [maze size | snapshot file] [enemies]
+     * Without a maze size the hardcoded maze is used, otherwise a generated maze
+     * with the given number of enemies (default 1).
+     * Game i is played with seed i, so every run of the same batch is identical.
+     * Given a snapshot file instead of a size, every game continues from that snapshot.
+     * With -Dpacmaze.record=<file> every game is recorded and the event logs are written
+     * to the file, ready to be replayed with GameReplayer; a snapshot continued this way
+     * must itself have been recorded. With -Dpacmaze.policy=cautious the player
+     * avoids the enemies using CautiousExitPolicy instead of the greedy exit policy.
+     * With -Dpacmaze.pathfinder=<strategy> (a_star, bidirectional_bfs, jump_point or
+     * incremental) a single enemy searches with that strategy instead of using a routing
+     * table. With -Dpacmaze.metrics=true the turn and search metrics (see Metrics) are
+     * printed after the batch; -Dpacmaze.metrics.file also dumps them periodically.
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String maze = args.length > 2 ? args[2] : null;
+        int enemies = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        IntFunction<Model> modelFactory;
+        if (maze == null) {
+            modelFactory = i -> new Model((long) i);
+        } else if (maze.chars().allMatch(Character::isDigit)) {
+            int size = Integer.parseInt(maze);
+            modelFactory = i -> new Model(size, i, enemies);
+        } else {
+            Path snapshot = Paths.get(maze);
+            modelFactory = i -> loadSnapshot(snapshot);
+        }
+
+        String pathFinder = System.getProperty("pacmaze.pathfinder");
+        if (pathFinder != null) {
+            PathFinder.Strategy strategy = PathFinder.Strategy.valueOf(pathFinder.toUpperCase(Locale.ROOT));
+            IntFunction<Model> baseFactory = modelFactory;
+            modelFactory = i -> {
+                Model model = baseFactory.apply(i);
+                model.setRoutingTableEnabled(false);
+                model.setPathFinderStrategy(strategy);
+                return model;
+            };
+        }
+
+        String record = System.getProperty("pacmaze.record");
+        if (record != null) {
+            IntFunction<Model> baseFactory = modelFactory;
+            modelFactory = i -> {
+                Model model = baseFactory.apply(i);
+                model.setRecording(true);
+                return model;
+            };
+        }
+
+        Supplier<PlayerPolicy> policyFactory = "cautious".equals(System.getProperty("pacmaze.policy"))
+            ? CautiousExitPolicy::new : GreedyExitPolicy::new;
+
+        Metrics.startConfiguredDump();
+        long start = System.nanoTime();
+        GameResult[] results = runBatch(games, modelFactory, policyFactory, DEFAULT_MAX_TURNS, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] outcomes = new int[GameResult.Outcome.values().length];
+        long totalTurns = 0;
+        for (GameResult result : results) {
+            outcomes[result.getOutcome().ordinal()]++;
+            totalTurns += result.getTurns();
+        }
+        System.out.printf("%d games on %d threads in %.2f s (%.0f games/s)%n", games, threads, seconds, games / seconds);
+        for (GameResult.Outcome outcome : GameResult.Outcome.values()) {
+            System.out.printf("  %-10s %d%n", outcome, outcomes[outcome.ordinal()]);
+        }
+        System.out.printf("  mean turns %.1f%n", (double) totalTurns / games);
+        Metrics.stopPeriodicDump();
+        if (Metrics.isEnabled()) {
+            System.out.print(Metrics.snapshot());
+        }
+
+        if (record != null) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(record)), 1 << 16)) {
+                for (GameResult result : results) {
+                    result.getLog().writeTo(out);
+                }
+            }
+            System.out.println("Event logs written to " + record);
+        }
+    }
+}
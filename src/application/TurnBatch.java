@@ -0,0 +1,143 @@
+package application;
+
+import java.util.Arrays;
+
+/*
+ * Reusable buffer of turn commands for Model.playTurns, plus the encoding of the
+ * commands and of the per-turn results.
+ * A command is one int: a target cell index (x * size + y) to move the player to along
+ * the shortest path, a single step in one of the four directions, or PASS to let the
+ * enemies move without moving the player. Each result is one int packing the turn's
+ * outcome flags, the player's lives and the score after the turn. Filling a batch and
+ * playing it again does not allocate once the arrays have grown to the batch size.
+ */
+public class TurnBatch {
+    // Command that moves only the enemies
+    public static final int PASS = -5;
+
+    // Outcome flags in the low four bits of a result
+    public static final int MOVED = 1; // The command was carried out and the enemies took their turn
+    public static final int LIFE_LOST = 2; // An enemy caught the player during the turn
+    public static final int WON = 4; // The game was won in this turn
+    public static final int LOST = 8; // The last life was lost in this turn
+
+    private static final int LIVES_SHIFT = 4;
+    private static final int SCORE_SHIFT = 12;
+
+    // Largest score a result can hold, in the 20 bits above the lives
+    public static final int MAX_SCORE = (1 << (32 - SCORE_SHIFT)) - 1;
+
+    private int[] commands = new int[16]; // Encoded commands
+    private int[] results = new int[16]; // Results of the last play
+    private int count; // Number of commands
+    private int played; // Number of results of the last play
+
+    /*
+     * Adds a command that moves the player to a cell within range.
+     *
+     * @param model The game the batch will be played on, for its size
+     * @param x The row of the target cell
+     * @param y The column of the target cell
+     * @return This batch
+     */
+    public TurnBatch moveTo(Model model, int x, int y) {
+        return add(x * model.getSize() + y);
+    }
+
+    /*
+     * Adds a command that moves the player a single step.
+     *
+     * @param direction The direction index: 0 right, 1 down, 2 left, 3 up (see GameLog.DX and DY)
+     * @return This batch
+     */
+    public TurnBatch step(int direction) {
+        if (direction < 0 || direction > 3) {
+            throw new IllegalArgumentException("Invalid direction " + direction);
+        }
+        return add(-1 - direction);
+    }
+
+    /*
+     * Adds a command that lets the enemies move without moving the player.
+     *
+     * @return This batch
+     */
+    public TurnBatch pass() {
+        return add(PASS);
+    }
+
+    /*
+     * Removes all commands and results.
+     */
+    public void clear() {
+        count = 0;
+        played = 0;
+    }
+
+    /*
+     * Plays all commands on a game with one call to Model.playTurns.
+     *
+     * @param model The game to play on
+     * @return The number of commands played; fewer than size() if the game ended first
+     */
+    public int playOn(Model model) {
+        if (results.length < count) {
+            results = new int[commands.length];
+        }
+        played = model.playTurns(commands, 0, count, results);
+        return played;
+    }
+
+    // Number of commands in the batch and of results from the last play
+    public int size() { return count; }
+    public int getPlayed() { return played; }
+
+    /*
+     * Gets the packed result of one played turn.
+     *
+     * @param turn The index of the command
+     * @return The result, to be read with the static accessors below
+     */
+    public int getResult(int turn) {
+        if (turn >= played) {
+            throw new IndexOutOfBoundsException("Turn " + turn + " of " + played + " played");
+        }
+        return results[turn];
+    }
+
+    /*
+     * Decodes a command that is a single step.
+     *
+     * @param command The command
+     * @return The direction index, or -1 if the command is not a step
+     */
+    static int stepDirection(int command) {
+        return command < 0 && command >= -4 ? -1 - command : -1;
+    }
+
+    /*
+     * Packs the result of a turn.
+     *
+     * @param flags The outcome flags
+     * @param lives The player's lives after the turn
+     * @param score The score after the turn; GameParameters.MAX_CHESTS keeps it within
+     *        MAX_SCORE, and a larger one is clamped rather than wrapped
+     * @return The packed result
+     */
+    static int packResult(int flags, int lives, int score) {
+        return Math.min(score, MAX_SCORE) << SCORE_SHIFT | Math.min(lives, 255) << LIVES_SHIFT | flags;
+    }
+
+    // Accessors for the fields of a packed result
+    public static int flags(int result) { return result & 15; }
+    public static int lives(int result) { return result >>> LIVES_SHIFT & 255; }
+    public static int score(int result) { return result >>> SCORE_SHIFT; }
+
+    private TurnBatch add(int command) {
+        if (count == commands.length) {
+            commands = Arrays.copyOf(commands, count * 2);
+        }
+        commands[count++] = command;
+        return this;
+    }
+}
@@ -0,0 +1,48 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight Recorder event for one played turn: the player's move and the enemies' reply.
+ * Emitted by Model where a turn ends, so turns played by Controller, Simulation,
+ * DifficultyTuner and GameServer are all recorded. The event begins at the turn's first
+ * change; undone, redone and replayed turns are not emitted. Model only allocates it
+ * through Recording, so turns played while nothing is recorded allocate no event.
+ */
+@Name("pacmaze.Turn")
+@Label("Turn")
+@Category({"PAC Maze", "Game"})
+@Description("One turn: the player's move followed by the enemies' reply")
+@StackTrace(false)
+public class TurnEvent extends Event {
+    @Label("Turn Number")
+    int turn; // Number of the turn in its game, counting from 1
+
+    @Label("Player Steps")
+    int playerSteps; // Cells the player moved
+
+    @Label("Enemy Steps")
+    int enemySteps; // Cells moved by all enemies together
+
+    @Label("Outcome")
+    String outcome; // MOVED, LIFE_LOST, WON or LOST
+
+    /*
+     * Names the outcome of a turn from the game state at its end.
+     *
+     * @param won Whether the game is won
+     * @param ended Whether the game has ended
+     * @param lifeLost Whether the player lost a life during the turn
+     * @return The outcome name
+     */
+    static String outcomeOf(boolean won, boolean ended, boolean lifeLost) {
+        if (won) return "WON";
+        if (ended) return "LOST";
+        return lifeLost ? "LIFE_LOST" : "MOVED";
+    }
+}
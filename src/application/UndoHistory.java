@@ -0,0 +1,445 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Per-turn change records for undo and redo.
+ * While a turn is open, Model reports the cells whose items it removes and the enemies it
+ * moves; when the turn closes, one record is written holding the before and after values
+ * of the player cell, score, lives, slow timer and end-of-game flags, followed by the
+ * removed items and the moved enemies (index, from cell, to cell). Records are stored back
+ * to back in a ring buffer of ints. The buffer starts small, so a game that is never
+ * undone (a simulation or a server game) keeps it small, and doubles as turns are stored
+ * up to MAX_CAPACITY ints and MAX_TURNS turns; from there the oldest turns are dropped.
+ * Undo and redo walk a record in either direction, so both cost O(changes in the turn)
+ * and neither allocates.
+ */
+public class UndoHistory {
+    // Offsets of the fixed fields of a record; each has a before value and, one further, an after value
+    static final int PLAYER = 0;
+    static final int SCORE = 2;
+    static final int LIVES = 4;
+    static final int SLOWED_TURNS = 6;
+    static final int FLAGS = 8;
+    static final int ITEMS = 10; // Item count, then one (cell << 1 | CLOCK bit) entry per item
+
+    // Bits of the FLAGS field
+    static final int GAME_WON = 1;
+    static final int GAME_ENDED = 2;
+
+    // Low bit of an item entry: set for a clock, clear for a chest
+    static final int CLOCK_ITEM = 1;
+
+    private static final int INITIAL_CAPACITY = 1 << 8; // Ints of change data before the first growth
+    private static final int MAX_CAPACITY = 1 << 16; // Most ints of change data kept
+    private static final int INITIAL_TURNS = 1 << 4; // Record starts before the first growth
+    private static final int MAX_TURNS = 1 << 10; // Most turns kept
+
+    private int[] data = new int[INITIAL_CAPACITY]; // Ring buffer of record ints, indexed by position & dataMask
+    private int dataMask = INITIAL_CAPACITY - 1;
+    private long[] recordStart = new long[INITIAL_TURNS]; // Start position of each record, indexed by record number & turnMask
+    private int turnMask = INITIAL_TURNS - 1;
+    private long first; // Number of the oldest record still stored
+    private long cursor; // Number of records currently applied; undo goes below, redo above
+    private long last; // Number of records stored
+
+    // State of the open turn
+    private boolean open; // Whether a turn is being recorded
+    private final int[] before = new int[5]; // Player cell, score, lives, slowed turns and flags at the start
+    private int[] items = new int[8]; // Removed item entries
+    private int itemCount;
+    private final int[] movedEnemies; // Indices of the enemies moved this turn
+    private final int[] movedFrom; // Cell each of those enemies started the turn on
+    private final boolean[] moved; // Whether each enemy has been recorded as moved this turn
+    private int movedCount;
+
+    /*
+     * Constructor for UndoHistory.
+     *
+     * @param enemyCount The number of enemies in the game
+     */
+    public UndoHistory(int enemyCount) {
+        movedEnemies = new int[enemyCount];
+        movedFrom = new int[enemyCount];
+        moved = new boolean[enemyCount];
+    }
+
+    /*
+     * Starts recording a turn, unless one is already open.
+     *
+     * @param playerCell The player's cell before the turn
+     * @param score The score before the turn
+     * @param lives The lives before the turn
+     * @param slowedTurns The slowed turns remaining before the turn
+     * @param flags The GAME_WON and GAME_ENDED flags before the turn
+     */
+    void beginTurn(int playerCell, int score, int lives, int slowedTurns, int flags) {
+        if (open) return;
+        open = true;
+        before[0] = playerCell;
+        before[1] = score;
+        before[2] = lives;
+        before[3] = slowedTurns;
+        before[4] = flags;
+        itemCount = 0;
+        movedCount = 0;
+    }
+
+    /*
+     * Records an item removed from a cell during the open turn.
+     *
+     * @param cell The cell index
+     * @param clock true for a clock, false for a chest
+     */
+    void itemRemoved(int cell, boolean clock) {
+        if (itemCount == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+        }
+        items[itemCount++] = cell << 1 | (clock ? CLOCK_ITEM : 0);
+    }
+
+    /*
+     * Records that an enemy is about to move; only its first move in a turn is kept.
+     *
+     * @param index The index of the enemy
+     * @param cell The cell the enemy is leaving
+     */
+    void enemyMoving(int index, int cell) {
+        if (moved[index]) return;
+        moved[index] = true;
+        movedEnemies[movedCount] = index;
+        movedFrom[movedCount++] = cell;
+    }
+
+    /*
+     * Closes the open turn and stores its record, discarding any turns that could have
+     * been redone. Nothing is stored if no turn is open.
+     *
+     * @param playerCell The player's cell after the turn
+     * @param score The score after the turn
+     * @param lives The lives after the turn
+     * @param slowedTurns The slowed turns remaining after the turn
+     * @param flags The GAME_WON and GAME_ENDED flags after the turn
+     * @param enemies The enemies, to read the cells the moved ones ended on
+     * @param size The width of the maze, to turn positions into cell indices
+     */
+    void endTurn(int playerCell, int score, int lives, int slowedTurns, int flags,
+            List<? extends Model.Position> enemies, int size) {
+        if (!open) return;
+        open = false;
+        for (int i = 0; i < movedCount; i++) {
+            moved[movedEnemies[i]] = false;
+        }
+
+        int length = ITEMS + 1 + itemCount + 1 + 3 * movedCount;
+        if (length > MAX_CAPACITY) {
+            // A turn too large to keep makes every earlier turn unreachable as well
+            clear();
+            return;
+        }
+
+        last = cursor;
+        long position = recordStart[(int) (last & turnMask)];
+        // Grow the buffers while the kept turns plus this one do not fit
+        long needed = position + length - recordStart[(int) (first & turnMask)];
+        int capacity = data.length;
+        while (capacity < needed && capacity < MAX_CAPACITY) {
+            capacity *= 2;
+        }
+        int turns = recordStart.length;
+        while (last + 1 - first >= turns && turns < MAX_TURNS) {
+            turns *= 2;
+        }
+        grow(capacity, turns);
+
+        put(position + PLAYER, before[0], playerCell);
+        put(position + SCORE, before[1], score);
+        put(position + LIVES, before[2], lives);
+        put(position + SLOWED_TURNS, before[3], slowedTurns);
+        put(position + FLAGS, before[4], flags);
+        long p = position + ITEMS;
+        data[(int) (p++ & dataMask)] = itemCount;
+        for (int i = 0; i < itemCount; i++) {
+            data[(int) (p++ & dataMask)] = items[i];
+        }
+        data[(int) (p++ & dataMask)] = movedCount;
+        for (int i = 0; i < movedCount; i++) {
+            Model.Position enemy = enemies.get(movedEnemies[i]);
+            data[(int) (p++ & dataMask)] = movedEnemies[i];
+            data[(int) (p++ & dataMask)] = movedFrom[i];
+            data[(int) (p++ & dataMask)] = enemy.x * size + enemy.y;
+        }
+
+        last++;
+        cursor = last;
+        recordStart[(int) (last & turnMask)] = p;
+        // Drop the oldest turns once their data or start slots are about to be overwritten
+        while (last - first >= recordStart.length || p - recordStart[(int) (first & turnMask)] > data.length) {
+            first++;
+        }
+    }
+
+    /*
+     * Moves the stored turns into larger buffers, keeping every position's index
+     * consistent with the new masks. Does nothing for buffers already of that size.
+     *
+     * @param capacity The new length of the data buffer, a power of two
+     * @param turns The new number of record starts, a power of two
+     */
+    private void grow(int capacity, int turns) {
+        if (capacity != data.length) {
+            int[] grown = new int[capacity];
+            long end = recordStart[(int) (last & turnMask)];
+            for (long p = recordStart[(int) (first & turnMask)]; p < end; p++) {
+                grown[(int) (p & (capacity - 1))] = data[(int) (p & dataMask)];
+            }
+            data = grown;
+            dataMask = capacity - 1;
+        }
+        if (turns != recordStart.length) {
+            long[] grown = new long[turns];
+            for (long r = first; r <= last; r++) {
+                grown[(int) (r & (turns - 1))] = recordStart[(int) (r & turnMask)];
+            }
+            recordStart = grown;
+            turnMask = turns - 1;
+        }
+    }
+
+    /*
+     * Checks whether a turn is being recorded.
+     *
+     * @return true between beginTurn and endTurn
+     */
+    boolean isOpen() {
+        return open;
+    }
+
+    /*
+     * Steps back over the most recent applied turn.
+     *
+     * @return The position of its record, or -1 if there is nothing to undo
+     */
+    long undo() {
+        if (open || cursor == first) return -1;
+        cursor--;
+        return recordStart[(int) (cursor & turnMask)];
+    }
+
+    /*
+     * Steps forward over the most recently undone turn.
+     *
+     * @return The position of its record, or -1 if there is nothing to redo
+     */
+    long redo() {
+        if (open || cursor == last) return -1;
+        return recordStart[(int) (cursor++ & turnMask)];
+    }
+
+    /*
+     * Reads one int of a record.
+     *
+     * @param position The absolute position returned by undo or redo plus an offset
+     * @return The stored value
+     */
+    int get(long position) {
+        return data[(int) (position & dataMask)];
+    }
+
+    /*
+     * Forgets every stored turn.
+     */
+    void clear() {
+        long start = recordStart[(int) (last & turnMask)];
+        first = 0;
+        cursor = 0;
+        last = 0;
+        recordStart[0] = start;
+    }
+
+    // Number of turns that can be undone and redone
+    public int getUndoCount() { return (int) (cursor - first); }
+    public int getRedoCount() { return (int) (last - cursor); }
+
+    // Number of records applied since the history began or was cleared, dropped ones included
+    long getAppliedCount() { return cursor; }
+
+    /*
+     * Gets the number of bytes writeSnapshot produces.
+     *
+     * @return The snapshot size in bytes
+     */
+    int snapshotSize() {
+        long start = recordStart[(int) (first & turnMask)];
+        long end = recordStart[(int) (last & turnMask)];
+        int ints = 3 + (int) (last - first) + (int) (end - start);
+        ints += 1 + (open ? before.length + 1 + itemCount + 1 + 2 * movedCount : 0);
+        return ints * Integer.BYTES;
+    }
+
+    /*
+     * Writes the stored turns: the undo and redo counts, each record's length, then the
+     * record data, followed by what has been recorded of a turn that is still open.
+     *
+     * @param buffer The buffer to write to
+     */
+    void writeSnapshot(ByteBuffer buffer) {
+        long start = recordStart[(int) (first & turnMask)];
+        long end = recordStart[(int) (last & turnMask)];
+        buffer.putInt(getUndoCount());
+        buffer.putInt(getRedoCount());
+        for (long r = first; r < last; r++) {
+            buffer.putInt((int) (recordStart[(int) ((r + 1) & turnMask)] - recordStart[(int) (r & turnMask)]));
+        }
+        buffer.putInt((int) (end - start));
+        for (long p = start; p < end; p++) {
+            buffer.putInt(get(p));
+        }
+
+        buffer.putInt(open ? 1 : 0);
+        if (open) {
+            for (int value : before) {
+                buffer.putInt(value);
+            }
+            buffer.putInt(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                buffer.putInt(items[i]);
+            }
+            buffer.putInt(movedCount);
+            for (int i = 0; i < movedCount; i++) {
+                buffer.putInt(movedEnemies[i]);
+                buffer.putInt(movedFrom[i]);
+            }
+        }
+    }
+
+    /*
+     * Reads turns written by writeSnapshot into this empty history. Every record is
+     * checked against the game, so a corrupt snapshot fails here rather than on the
+     * first undo.
+     *
+     * @param buffer The buffer to read from
+     * @param cellCount The number of cells in the maze
+     * @param enemyCount The number of enemies in the game
+     * @throws IllegalArgumentException if the stored turns do not fit the game
+     */
+    void readSnapshot(ByteBuffer buffer, int cellCount, int enemyCount) {
+        int undoCount = buffer.getInt();
+        int redoCount = buffer.getInt();
+        // Checked one at a time, as their sum can overflow
+        if (undoCount < 0 || redoCount < 0 || undoCount >= MAX_TURNS || redoCount >= MAX_TURNS - undoCount) {
+            throw new IllegalArgumentException("Invalid undo history of " + undoCount + "+" + redoCount + " turns");
+        }
+        int turns = undoCount + redoCount;
+        int slots = INITIAL_TURNS;
+        while (slots <= turns) {
+            slots *= 2;
+        }
+        recordStart = new long[slots];
+        turnMask = slots - 1;
+        long position = 0;
+        for (int r = 0; r < turns; r++) {
+            recordStart[r] = position;
+            int length = buffer.getInt();
+            if (length <= ITEMS || length > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Invalid undo record length " + length);
+            }
+            position += length;
+        }
+        recordStart[turns & turnMask] = position;
+        int total = buffer.getInt();
+        if (total != position || total < 0 || total > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid undo history length " + total);
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < total) {
+            capacity *= 2;
+        }
+        data = new int[capacity];
+        dataMask = capacity - 1;
+        for (int p = 0; p < total; p++) {
+            data[p] = buffer.getInt();
+        }
+        for (int r = 0; r < turns; r++) {
+            checkRecord(recordStart[r], (int) (recordStart[r + 1] - recordStart[r]), cellCount, enemyCount);
+        }
+        first = 0;
+        last = turns;
+        cursor = undoCount;
+
+        open = buffer.getInt() != 0;
+        if (open) {
+            for (int i = 0; i < before.length; i++) {
+                before[i] = buffer.getInt();
+            }
+            checkCell(before[0], cellCount);
+            itemCount = 0;
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+                throw new IllegalArgumentException("Invalid open turn item count " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                int item = buffer.getInt();
+                checkCell(item >> 1, cellCount);
+                itemRemoved(item >> 1, (item & CLOCK_ITEM) != 0);
+            }
+            movedCount = 0;
+            count = buffer.getInt();
+            if (count < 0 || count > enemyCount) {
+                throw new IllegalArgumentException("Invalid open turn enemy count " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                int index = buffer.getInt();
+                int cell = buffer.getInt();
+                checkEnemy(index, enemyCount);
+                checkCell(cell, cellCount);
+                enemyMoving(index, cell);
+            }
+        }
+    }
+
+    /*
+     * Checks that a stored record's counts add up to its length and that its cells and
+     * enemy indices exist in the game.
+     */
+    private void checkRecord(long position, int length, int cellCount, int enemyCount) {
+        checkCell(get(position + PLAYER), cellCount);
+        checkCell(get(position + PLAYER + 1), cellCount);
+        long p = position + ITEMS;
+        int items = get(p++);
+        if (items < 0 || items > length - ITEMS - 2) {
+            throw new IllegalArgumentException("Invalid undo record item count " + items);
+        }
+        for (int i = 0; i < items; i++) {
+            checkCell(get(p++) >> 1, cellCount);
+        }
+        int enemies = get(p++);
+        if (enemies < 0 || enemies > enemyCount || ITEMS + 2 + items + 3 * enemies != length) {
+            throw new IllegalArgumentException("Invalid undo record enemy count " + enemies);
+        }
+        for (int i = 0; i < enemies; i++) {
+            checkEnemy(get(p++), enemyCount);
+            checkCell(get(p++), cellCount);
+            checkCell(get(p++), cellCount);
+        }
+    }
+
+    private static void checkCell(int cell, int cellCount) {
+        if (cell < 0 || cell >= cellCount) {
+            throw new IllegalArgumentException("Invalid cell " + cell + " in undo history");
+        }
+    }
+
+    private static void checkEnemy(int index, int enemyCount) {
+        if (index < 0 || index >= enemyCount) {
+            throw new IllegalArgumentException("Invalid enemy " + index + " in undo history");
+        }
+    }
+
+    private void put(long position, int beforeValue, int afterValue) {
+        data[(int) (position & dataMask)] = beforeValue;
+        data[(int) ((position + 1) & dataMask)] = afterValue;
+    }
+}
@@ -7,75 +7,70 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.Node;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.MediaPlayer;
-import javafx.stage.Popup;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
+import javafx.scene.paint.Color;
 
 // Import Java utility classes
 import java.util.List;
 import java.util.ArrayList;
 
-//For the music
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-
 // The View class is responsible for creating and managing the game's user interface
 public class View {
+    // Ways the game board can be drawn
+    public enum BoardStyle {
+        BUTTONS, // One styled Button per cell, the classic look for small mazes
+        CANVAS   // A single Canvas, for large mazes
+    }
+    
     // UI components
-    private GridPane gameGrid; // Grid to hold the game board buttons
-    private Button[][] gridButtons; // 2D array of buttons representing the game board
+    private BoardRenderer board; // Renderer drawing the game board
     private Button backToMenuButton; // Button to return to the main menu
     private Label livesLabel; // Label to display lives left
     private Label scoreLabel; // Label to display the current score
     private BorderPane mainLayout; // Main layout container for the game UI
     private VBox topPanel; // Top panel to hold score and lives
     private HBox livesPanel; // Panel to display player lives as images
+    private StackPane root; // Scene root stacking the popup layer above the main layout
+    
+    // Popup layer, built once and reused for every life lost and game end message
+    private StackPane popupLayer; // Dimmed backdrop covering the game while a popup is shown
+    private ImageView popupImage; // Image shown in the popup
+    private Label popupMessage; // Message shown in the popup
+    private Button popupButton; // Button closing the popup
+    private boolean gameEndShown; // Whether the game end popup has been shown for the current ending
     
     // Image resources for game elements
     private Image playerImage; 
-    private Image enemyImage;
-    private Image chestImage; 
-    private Image clockImage;
-    private Image finishImage;
+    private Image overImage;
+    private Image winImage;
+    private Image lostImage;
     private List<ImageView> lifeImages; // List of ImageViews to display player lives
     
-    private MediaPlayer mediaPlayer;
-    
-    // Constructor for the View class
+    // Constructor for the View class, using the classic button board for the hardcoded maze
     public View() {
-        // Load all necessary images for the game
-        playerImage = new Image("img/player.png");
-        enemyImage = new Image("img/enemy.png");
-        chestImage = new Image("img/coin.png");
-        clockImage = new Image("img/clock.png");
-        finishImage = new Image("img/exit.png");
+        this(Model.SIZE, BoardStyle.BUTTONS);
+    }
+    
+    // Constructor for the View class with a choice of maze size and board renderer
+    public View(int size, BoardStyle boardStyle) {
+        // Get all necessary images for the game from the shared cache
+        playerImage = Assets.get(Assets.PLAYER);
+        overImage = Assets.get(Assets.OVER);
+        winImage = Assets.get(Assets.WIN);
+        lostImage = Assets.get(Assets.LOST);
         
         // Create the main layout container
         mainLayout = new BorderPane();
         
-        // Create and set up the game grid
-        gameGrid = new GridPane();
-        gameGrid.setAlignment(Pos.CENTER);
-        
-        // Initialize the 2D array of grid buttons
-        gridButtons = new Button[Model.SIZE][Model.SIZE];
-        
-        // Create buttons for each cell in the game grid
-        for (int i = 0; i < Model.SIZE; i++) {
-            for (int j = 0; j < Model.SIZE; j++) {
-                Button btn = new Button();
-                btn.setPrefSize(25, 25);
-                btn.setMinSize(25, 25);
-                btn.setMaxSize(25, 25);
-                btn.setStyle("-fx-background-radius: 0;");  // Make buttons square
-                gridButtons[i][j] = btn;
-                gameGrid.add(btn, j, i);
-            }
+        // Create the game board
+        if (boardStyle == BoardStyle.CANVAS) {
+            board = new CanvasBoard(size);
+        } else {
+            board = new ButtonBoard(size);
         }
         
         // Set up the top panel
@@ -98,19 +93,13 @@ public class View {
         livesPanel.setAlignment(Pos.CENTER_LEFT);
         lifeImages = new ArrayList<>();
         
-        // Create 3 life images (player has 3 lives at start)
-        for (int i = 0; i < 3; i++) {
-            ImageView lifeImage = new ImageView(playerImage);
-            lifeImage.setFitWidth(24);
-            lifeImage.setFitHeight(24);
-            lifeImages.add(lifeImage);
-        }
+        // Create 3 life images (player has 3 lives at start in the classic game)
+        setLifeImageCount(GameParameters.DEFAULT.getLives());
         
         // Create a container for the lives label and images
         HBox livesContainer = new HBox(10);
         livesContainer.setAlignment(Pos.CENTER_LEFT);
         livesContainer.getChildren().addAll(livesLabel, livesPanel);
-        livesPanel.getChildren().addAll(lifeImages);
         livesContainer.getStyleClass().add("status");
         
         // Create the "Back to Main Menu" button
@@ -129,77 +118,77 @@ public class View {
 
         // Add all components to the main layout
         mainLayout.setTop(topPanel);
-        mainLayout.setCenter(gameGrid);
+        mainLayout.setCenter(board.getNode());
         mainLayout.setBottom(controlPanel);
         
-        // Apply CSS styles to the main layout
-        mainLayout.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+        // Build the popup layer once; it stays hidden until a popup is shown
+        createPopupLayer();
+        
+        // Stack the popup layer above the main layout
+        root = new StackPane(mainLayout, popupLayer);
+        
+        // Apply CSS styles to the whole view, popup included
+        root.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+    }
+    
+    // Method to create the reusable popup layer
+    private void createPopupLayer() {
+        popupImage = new ImageView();
+        popupImage.setFitWidth(200);
+        popupImage.setPreserveRatio(true);
+        
+        popupMessage = new Label();
+        popupMessage.getStyleClass().add("popup-message");
+        
+        popupButton = new Button();
+        popupButton.getStyleClass().add("blue-button");
+        
+        // The popup box, sized like the popup windows it replaces
+        VBox popupBox = new VBox(20, popupImage, popupMessage, popupButton);
+        popupBox.setAlignment(Pos.CENTER);
+        popupBox.setPadding(new Insets(20));
+        popupBox.setMaxSize(400, 400);
+        popupBox.getStyleClass().add("popup");
+        
+        // The backdrop catches clicks so the board cannot be played behind the popup
+        popupLayer = new StackPane(popupBox);
+        popupLayer.getStyleClass().add("popup-layer");
+        popupLayer.setVisible(false);
     }
       
     // Method to update the view based on the current game state
+    // Only the cells the model reports as changed are repainted; the first update paints everything
     public void update(Model model) {
-        Model.Cell[][] grid = model.getGrid();
-        Model.Player player = model.getPlayer();
-        Model.Enemy enemy = model.getEnemy();
-        
-        // Load game over and win images
-        Image imgOver = new Image("img/over.png");
-    	Image imgWin = new Image("img/win.png");
-
-        // Update each cell in the grid
-        for (int i = 0; i < Model.SIZE; i++) {
-            for (int j = 0; j < Model.SIZE; j++) {
-                Button btn = gridButtons[i][j];
-                // Remove any existing custom styles
-                btn.getStyleClass().removeAll("path-cell", "hover-cell");
-                btn.setGraphic(null);
-                
-                // Set default style for empty cells
-                btn.getStyleClass().add("empty-cell");
-                                
-                // Set wall style for wall cells
-                if (grid[i][j] == Model.Cell.WALL) {
-                    btn.getStyleClass().add("wall-cell");
-                    continue;
-                }
-                
-                ImageView imageView = null;
-                
-                // Set appropriate image for each cell type
-                if (i == player.x && j == player.y) {
-                    imageView = new ImageView(playerImage);
-                } else if (i == enemy.x && j == enemy.y) {
-                    imageView = new ImageView(enemyImage);
-                } else {
-                    switch (grid[i][j]) {
-                        case CHEST:
-                            imageView = new ImageView(chestImage);
-                            break;
-                        case CLOCK:
-                            imageView = new ImageView(clockImage);
-                            break;
-                        case FINISH:
-                            imageView = new ImageView(finishImage);
-                            break;
-                    }
-                }
-                
-                // Set the image for the button if one was selected
-                if (imageView != null) {
-                    imageView.setFitWidth(23);
-                    imageView.setFitHeight(23);
-                    imageView.setPreserveRatio(true);
-                    btn.setGraphic(imageView);
+        RenderEvent event = Recording.beginRender();
+        long started = Metrics.start();
+        int size = model.getSize();
+        CellChangeSet changes = model.getChanges();
+        boolean all = changes.isAll();
+        int painted = all ? size * size : changes.size();
+        if (all) {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    board.paintCell(model, i, j);
                 }
             }
+        } else {
+            for (int k = 0; k < changes.size(); k++) {
+                int cell = changes.get(k);
+                board.paintCell(model, cell / size, cell % size);
+            }
         }
+        changes.clear();
+        
+        // Remove any path preview left from before the move
+        clearPathHighlight();
         
         // Update the score display
         scoreLabel.setText("SCORE: " + model.getScore());
         
-        // Update life images based on remaining lives
+        // Update life images based on remaining lives, one image per starting life
         int lives = model.getPlayerLives();
-        for (int i = 0; i < 3; i++) {
+        setLifeImageCount(model.getParameters().getLives());
+        for (int i = 0; i < lifeImages.size(); i++) {
             lifeImages.get(i).setOpacity(i < lives ? 1.0 : 0.3);
         }
         
@@ -208,112 +197,97 @@ public class View {
             showLifeLostPopup();
         }
 
-        // Show game over or victory popup if the game has ended
-        if (model.isGameOver()) {
-            showGameEndPopup("GAME OVER!", "#950606", imgOver);
-        } else if (model.isGameWon()) {
-            showGameEndPopup("VICTORY!", "#2E6F40", imgWin);
+        // Show game over or victory popup once when the game ends
+        boolean ended = model.isGameOver() || model.isGameWon();
+        if (ended && !gameEndShown) {
+            if (model.isGameOver()) {
+                showGameEndPopup("GAME OVER!", Color.web("#950606"), overImage);
+            } else {
+                showGameEndPopup("VICTORY!", Color.web("#2E6F40"), winImage);
+            }
+        } else if (!ended && gameEndShown) {
+            // The ending was undone, so close its popup and allow it to show again
+            hidePopup();
+        }
+        gameEndShown = ended;
+
+        if (started != 0) {
+            Metrics.VIEW_UPDATE.recordSince(started);
+            Metrics.CELLS_REPAINTED.add(painted);
+        }
+        if (event != null && event.shouldCommit()) {
+            event.cellsRepainted = painted;
+            event.fullRepaint = all;
+            event.commit();
         }
     }
     
-    // Method to highlight the path found by the pathfinding algorithm
-    public void highlightPath(List<Model.Position> path) {
-        clearPathHighlight();  // Clear any existing highlights
-        for (Model.Position pos : path) {
-            gridButtons[pos.x][pos.y].getStyleClass().add("path-cell");
+    // Method to show one life image per life the player starts with
+    private void setLifeImageCount(int count) {
+        while (lifeImages.size() < count) {
+            ImageView lifeImage = new ImageView(playerImage);
+            lifeImage.setFitWidth(24);
+            lifeImage.setFitHeight(24);
+            lifeImages.add(lifeImage);
+            livesPanel.getChildren().add(lifeImage);
         }
+        while (lifeImages.size() > count) {
+            livesPanel.getChildren().remove(lifeImages.remove(lifeImages.size() - 1));
+        }
+    }
+    
+    // Method to highlight the path found by the pathfinding algorithm, marking the cells the enemy threatens
+    public void highlightPath(List<Model.Position> path, Model model) {
+        board.highlightPath(path, model);
     }
 
     // Method to clear the path highlight
     public void clearPathHighlight() {
-        for (int i = 0; i < Model.SIZE; i++) {
-            for (int j = 0; j < Model.SIZE; j++) {
-                gridButtons[i][j].getStyleClass().remove("path-cell");
-            }
-        }
+        board.clearPathHighlight();
+    }
+    
+    // Method to map a mouse position on the canvas board to a cell index (row * size + column)
+    // Returns -1 outside the maze or when the button board is used
+    public int cellAt(double x, double y) {
+        return board instanceof CanvasBoard ? ((CanvasBoard) board).cellAt(x, y) : -1;
     }
         
     // Method to show the game end popup (either game over or victory)
-    private void showGameEndPopup(String message, String color, Image img) {
-        Stage popupStage = new Stage();
-        popupStage.initOwner(mainLayout.getScene().getWindow());
-        popupStage.setWidth(400);
-        popupStage.setHeight(400);
-        
-        VBox popupVBox = new VBox(20);
-        popupVBox.setAlignment(Pos.CENTER);
-        popupVBox.setPadding(new Insets(20));
-        
-        // Set up the image for the popup
-        ImageView imgView = new ImageView(img);
-        imgView.setFitWidth(200);
-        imgView.setPreserveRatio(true);    
-        
-        // Create and style the message label
-        Label messageLabel = new Label(message);
-        messageLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: " + color + ";");
-        
-        // Create the home button
-        Button homeButton = new Button("Home");
-        homeButton.getStyleClass().add("blue-button");
-        homeButton.setOnAction(e -> {
+    private void showGameEndPopup(String message, Color color, Image img) {
+        showPopup(message, color, img, "Home", () -> {
+            hidePopup();
             backToMenuButton.fire(); // Simulate clicking the "Back to Main Menu" button
-            popupStage.close();
         });
-        
-        // Add all elements to the popup
-        popupVBox.getChildren().addAll(imgView, messageLabel, homeButton);
-        
-        // Set up the scene for the popup
-        Scene popupScene = new Scene(popupVBox);
-        popupScene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
-        
-        popupStage.setScene(popupScene);
-        popupStage.setTitle("Game End");
-        popupStage.show();
     }
     
     // Method to show the life lost popup
     private void showLifeLostPopup() {
-        Stage popupStage = new Stage();
-        popupStage.initOwner(mainLayout.getScene().getWindow());
-        popupStage.setWidth(400);
-        popupStage.setHeight(400);
-        
-        VBox popupVBox = new VBox(20);
-        popupVBox.setAlignment(Pos.CENTER);
-        popupVBox.setPadding(new Insets(20));
-        
-        // Set up the image for the popup
-        Image img = new Image("img/lost.png");
-        ImageView imgView = new ImageView(img);
-        imgView.setFitWidth(200);
-        imgView.setPreserveRatio(true);
-        
-        // Create and style the message label
-        Label messageLabel = new Label("You've Lost a Life!");
-        messageLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: #950606;");
-        
-        // Create the continue button
-        Button continueButton = new Button("Continue");
-        continueButton.getStyleClass().add("blue-button");
-        continueButton.setOnAction(e -> popupStage.close());
-        
-        // Add all elements to the popup
-        popupVBox.getChildren().addAll(imgView, messageLabel, continueButton);
-        
-        // Set up the scene for the popup
-        Scene popupScene = new Scene(popupVBox);
-        popupScene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
-        
-        popupStage.setScene(popupScene);
-        popupStage.setTitle("Life Lost");
-        popupStage.show();
+        showPopup("You've Lost a Life!", Color.web("#950606"), lostImage, "Continue", this::hidePopup);
+    }
+    
+    // Method to fill the popup layer with a message and show it above the game
+    private void showPopup(String message, Color color, Image img, String buttonText, Runnable action) {
+        popupImage.setImage(img);
+        popupMessage.setText(message);
+        popupMessage.setTextFill(color);
+        popupButton.setText(buttonText);
+        popupButton.setOnAction(e -> action.run());
+        popupLayer.setVisible(true);
+        popupButton.requestFocus();
+    }
+    
+    // Method to hide the popup layer and give the keyboard back to the game
+    private void hidePopup() {
+        popupLayer.setVisible(false);
+        mainLayout.requestFocus();
     }
 
     // Getter methods for accessing private fields
     public BorderPane getMainLayout() { return mainLayout; }
-    public Button[][] getGridButtons() { return gridButtons; }
+    // The node to use as the scene root, holding the main layout and the popup layer
+    public StackPane getRoot() { return root; }
+    public Node getBoardNode() { return board.getNode(); }
+    // Returns null when the canvas board is used
+    public Button[][] getGridButtons() { return board instanceof ButtonBoard ? ((ButtonBoard) board).getGridButtons() : null; }
     public Button getBackToMenuButton() { return backToMenuButton; }
-    public MediaPlayer getGameMusicPlayer() { return mediaPlayer; }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Checks that enemies standing on the player when the enemies' turn starts catch them
+ * under the same rule whether one enemy moves by path search or several by the flow field.
+ */
+public class CollisionTest {
+    @Test
+    public void oneEnemyOnThePlayerCatchesThem() {
+        checkCaughtStandingOnThePlayer(1);
+    }
+
+    @Test
+    public void twoEnemiesOnThePlayerCatchThem() {
+        checkCaughtStandingOnThePlayer(2);
+    }
+
+    /*
+     * Walks every enemy onto the player through logged steps, then plays the enemies' turn
+     * and checks that it cost exactly one life and sent everyone back to their starts.
+     */
+    private static void checkCaughtStandingOnThePlayer(int enemyCount) {
+        Model model = new Model(41, 45L, GameParameters.DEFAULT.withEnemyCount(enemyCount));
+        int size = model.getSize();
+        Model.Position playerStart = new Model.Position(model.getPlayer().x, model.getPlayer().y);
+        List<Model.Position> enemyStarts = new ArrayList<>();
+        for (Model.Enemy enemy : model.getEnemies()) {
+            enemyStarts.add(new Model.Position(enemy.x, enemy.y));
+        }
+
+        AStarPathFinder pathFinder = new AStarPathFinder(model.getGrid());
+        int goal = playerStart.x * size + playerStart.y;
+        for (int i = 0; i < enemyCount; i++) {
+            Model.Enemy enemy = model.getEnemies().get(i);
+            while (enemy.x * size + enemy.y != goal) {
+                int next = pathFinder.nextStep(enemy.x * size + enemy.y, goal);
+                assertTrue(next >= 0, "enemy " + i + " cannot reach the player");
+                int direction = GameLog.direction(next / size - enemy.x, next % size - enemy.y);
+                model.replayEvent(GameLog.ENEMY_STEP, direction, i);
+            }
+        }
+        model.replayEvent(GameLog.TURN_END, 0, 0);
+        model.wasLifeLost();
+
+        int lives = model.getPlayerLives();
+        int turns = model.getLog().getTurns();
+        model.moveEnemy();
+        assertTrue(model.wasLifeLost(), "no life lost");
+        assertEquals(lives - 1, model.getPlayerLives(), "lives");
+        assertEquals(turns + 1, model.getLog().getTurns(), "turns counted");
+        assertEquals(playerStart.x + "," + playerStart.y, model.getPlayer().x + "," + model.getPlayer().y, "player position");
+        for (int i = 0; i < enemyCount; i++) {
+            Model.Enemy enemy = model.getEnemies().get(i);
+            assertEquals(enemyStarts.get(i).x + "," + enemyStarts.get(i).y, enemy.x + "," + enemy.y, "position of enemy " + i);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Records seeded games with undos and redos between turns, replays the logs and checks
+ * that the replay passes through the same state after every turn, ends in the same
+ * state and records the same log again.
+ */
+public class GameReplayerTest {
+    private static final GameParameters ITEMS = GameParameters.DEFAULT.withChests(40).withClocks(15);
+
+    @Test
+    public void replaysGameOnHardcodedMaze() throws IOException {
+        checkReplay(new Recording(new Model(41L, ITEMS.withChests(20).withClocks(10)), 300, 41));
+    }
+
+    @Test
+    public void replaysGameWithOneEnemy() throws IOException {
+        checkReplay(new Recording(new Model(41, 42L, ITEMS), 300, 42));
+    }
+
+    @Test
+    public void replaysGameWithSeveralEnemies() throws IOException {
+        checkReplay(new Recording(new Model(41, 43L, ITEMS.withEnemyCount(4)), 300, 43));
+    }
+
+    @Test
+    public void replaysConcatenatedGames() throws IOException {
+        checkReplay(new Recording(new Model(31, 44L, ITEMS.withLives(10)), 200, 44),
+            new Recording(new Model(31, 45L, ITEMS.withLives(10).withEnemyCount(3)), 200, 45),
+            new Recording(new Model(46L), 200, 46));
+    }
+
+    @Test
+    public void replayEmitsNoTurnEvents() throws IOException {
+        Recording recording = new Recording(new Model(31, 47L, ITEMS.withEnemyCount(2)), 100, 47);
+        Path file = Files.createTempFile("pacmaze", ".jfr");
+        int liveTurns;
+        try (jdk.jfr.Recording flight = new jdk.jfr.Recording()) {
+            flight.enable("pacmaze.Turn");
+            flight.start();
+            GameReplayer replayer = new GameReplayer(new ByteArrayInputStream(recording.log));
+            assertTrue(replayer.nextGame(), "the game is missing");
+            assertTrue(replayer.finishGame() > 0, "no turns replayed");
+
+            // Live turns in the same recording do emit events
+            Model live = new Model(48L);
+            SplittableRandom random = new SplittableRandom(48);
+            for (int turn = 0; turn < 5 && TestGames.playTurn(live, new GreedyExitPolicy(), random); turn++) {
+            }
+            liveTurns = live.getLog().getTurns();
+            flight.stop();
+            flight.dump(file);
+        }
+        try {
+            long events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("pacmaze.Turn"))
+                .count();
+            assertTrue(liveTurns > 0, "no live turns played");
+            assertEquals(liveTurns, events, "turn events");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /*
+     * Writes the recordings' logs into one stream and replays it game by game, stepping
+     * to a few turns in each game before finishing it.
+     */
+    private static void checkReplay(Recording... recordings) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (Recording recording : recordings) {
+            stream.write(recording.log);
+        }
+        GameReplayer replayer = new GameReplayer(new ByteArrayInputStream(stream.toByteArray()));
+
+        for (Recording recording : recordings) {
+            assertTrue(replayer.nextGame(), "game " + recording.model.getSeed() + " is missing");
+            Model replay = replayer.getModel();
+            int turns = recording.model.getLog().getTurns();
+            for (int target : new int[] {1, turns / 3, turns / 2}) {
+                assertEquals(target, replayer.fastForward(target), "turns replayed");
+                assertEquals(recording.states.get(target), TestGames.describe(replay), "state after turn " + target);
+            }
+            assertEquals(turns, replayer.finishGame(), "turns replayed to the end");
+            assertEquals(TestGames.describe(recording.model), TestGames.describe(replay), "final state");
+
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            replay.getLog().writeTo(log);
+            assertArrayEquals(recording.log, log.toByteArray(), "log recorded by the replay");
+        }
+        assertFalse(replayer.nextGame(), "game after the last");
+    }
+
+    /*
+     * A recorded game: random turns with undos and redos between them, and undos to
+     * carry on after the game has ended.
+     */
+    private static final class Recording {
+        final Model model;
+        final Map<Integer, String> states = new HashMap<>(); // State right after each turn's end, by turn number
+        final byte[] log;
+        int undos; // Turns undone while recording
+        int redos; // Turns redone while recording
+
+        Recording(Model model, int turns, long seed) throws IOException {
+            this.model = model;
+            model.setRecording(true);
+            SplittableRandom random = new SplittableRandom(seed);
+            PlayerPolicy policy = new GreedyExitPolicy();
+            List<Integer> endings = new ArrayList<>();
+
+            for (int turn = 0; turn < turns; turn++) {
+                if (!TestGames.playTurn(model, policy, random)) {
+                    // Take back the game's last turns and play on, until a few endings were seen
+                    endings.add(turn);
+                    if (endings.size() > 3 || !model.undoTurn()) break;
+                    continue;
+                }
+                // A game-ending move logs no turn end, so it is only reached through finishGame
+                if (model.getLog().getTurns() > states.size()) {
+                    states.put(model.getLog().getTurns(), TestGames.describe(model));
+                }
+
+                // Sometimes undo a few turns and redo some of them, as a player trying moves would
+                if (random.nextInt(5) == 0) {
+                    int undone = 0;
+                    for (int i = random.nextInt(1, 4); i > 0 && model.undoTurn(); i--) {
+                        undone++;
+                    }
+                    for (int i = random.nextInt(undone + 1); i > 0 && model.redoTurn(); i--) {
+                        redos++;
+                    }
+                    undos += undone;
+                }
+            }
+            assertTrue(undos > 0 && redos > 0, "the game was recorded without undos or redos");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            model.getLog().writeTo(out);
+            log = out.toByteArray();
+        }
+    }
+}
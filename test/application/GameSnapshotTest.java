@@ -0,0 +1,320 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Saves games in awkward states, loads them back and checks that the restored game is
+ * the same game: equal state, equal undo history and identical play from then on.
+ * Damaged files must fail to load with an IOException.
+ */
+public class GameSnapshotTest {
+    private static final GameParameters ITEMS = GameParameters.DEFAULT.withChests(40).withClocks(15);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void restoresOpenTurnWithTurnsToRedo() throws IOException {
+        Model model = new Model(41, 11L, ITEMS.withEnemyCount(3));
+        SplittableRandom random = new SplittableRandom(31);
+        play(model, 20, random);
+        assertTrue(model.undoTurn() && model.undoTurn(), "undo of two turns");
+        // The player's move opens a turn; the undone turns stay until the enemies reply
+        Model.Position target = new GreedyExitPolicy().chooseMove(model);
+        assertTrue(target != null && model.movePlayerToPosition(target), "the player cannot move");
+        assertTrue(model.getHistory().isOpen(), "the turn is open");
+        assertEquals(2, model.getHistory().getRedoCount(), "turns to redo");
+
+        Model loaded = saveAndLoad(model);
+        assertTrue(loaded.getHistory().isOpen(), "the loaded turn is open");
+        assertEquals(2, loaded.getHistory().getRedoCount(), "loaded turns to redo");
+        assertSameGame(model, loaded);
+        playBoth(model, loaded, 10, random.nextLong());
+        undoBoth(model, loaded);
+    }
+
+    @Test
+    public void restoresUndoneOpenTurn() throws IOException {
+        Model model = new Model(41, 12L, ITEMS.withEnemyCount(2));
+        play(model, 15, new SplittableRandom(32));
+        Model.Position target = new GreedyExitPolicy().chooseMove(model);
+        assertTrue(target != null && model.movePlayerToPosition(target), "the player cannot move");
+
+        Model loaded = saveAndLoad(model);
+        assertTrue(model.undoTurn() && loaded.undoTurn(), "undo of the open turn");
+        assertSameGame(model, loaded);
+        assertTrue(model.redoTurn() && loaded.redoTurn(), "redo of the open turn");
+        assertSameGame(model, loaded);
+    }
+
+    @Test
+    public void restoresWonGame() throws IOException {
+        Model model = new Model(19L, ITEMS.withChests(20).withClocks(10));
+        play(model, 500, new SplittableRandom(33));
+        assertTrue(model.isGameWon(), "the game was not won");
+
+        Model loaded = saveAndLoad(model);
+        assertTrue(loaded.isGameWon(), "the loaded game is won");
+        assertFalse(loaded.movePlayer(0, 1) || loaded.movePlayer(1, 0) || loaded.movePlayer(0, -1) || loaded.movePlayer(-1, 0),
+            "the player moved after the game ended");
+        undoBoth(model, loaded);
+    }
+
+    @Test
+    public void savesBuiltRoutingTable() throws IOException {
+        Model model = new Model(41, 14L, ITEMS);
+        assertTrue(model.setRoutingTableEnabled(true), "the routing table does not fit");
+        Path before = directory.resolve("before.pacm");
+        GameSnapshot.save(model, before);
+
+        // The first enemy move builds the table, which later saves carry along
+        play(model, 5, new SplittableRandom(34));
+        Path after = directory.resolve("after.pacm");
+        GameSnapshot.save(model, after);
+        assertTrue(Files.size(after) > Files.size(before) + model.getGrid().getCellCount(),
+            "the routing table is missing from the save");
+
+        // A restored table is saved again, so the save reproduces byte for byte
+        Model loaded = GameSnapshot.load(after);
+        Path again = directory.resolve("again.pacm");
+        GameSnapshot.save(loaded, again);
+        assertArrayEquals(Files.readAllBytes(after), Files.readAllBytes(again), "the loaded game saves differently");
+        playBoth(model, loaded, 20, 35);
+        undoBoth(model, loaded);
+    }
+
+    @Test
+    public void rejectsRoutingTableFlagWithoutTable() throws IOException {
+        Model model = new Model(41, 15L, ITEMS);
+        Path file = directory.resolve("game.pacm");
+        GameSnapshot.save(model, file);
+        byte[] bytes = Files.readAllBytes(file);
+        // The flags word follows the header and the maze size
+        ByteBuffer body = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(20, body.getInt(20) | 32);
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> GameSnapshot.load(file), "load with a missing routing table");
+    }
+
+    @Test
+    public void rejectsRoutingTableWithLoopOrHopIntoWall() {
+        PackedGrid grid = new PackedGrid(41, MazeGenerator.generate(41, 18, 0.5));
+        RoutingTable table = new RoutingTable(grid);
+        ByteBuffer saved = ByteBuffer.allocate(table.snapshotSize());
+        table.writeSnapshot(saved);
+        int[] walkable = grid.walkableCells();
+        int goal = walkable[0];
+
+        // Two neighbours sending each other round in circles instead of towards the goal
+        int from = walkable[walkable.length / 2];
+        int direction = Integer.numberOfTrailingZeros(grid.openNeighbours(from));
+        int neighbour = from + grid.offset(1 << direction);
+        assertTrue(table.distance(from, goal) > 1 && table.distance(neighbour, goal) > 1, "the cells are next to the goal");
+        ByteBuffer looping = copy(saved);
+        setHop(looping, walkable, goal, from, direction);
+        setHop(looping, walkable, goal, neighbour, (direction + 2) & 3);
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.readSnapshot(looping, grid), "load of looping hops");
+
+        // A hop through a wall
+        int blocked = Integer.numberOfTrailingZeros(~grid.openNeighbours(from) & 15);
+        assertTrue(blocked < 4, "the cell has no wall next to it");
+        ByteBuffer walled = copy(saved);
+        setHop(walled, walkable, goal, from, blocked);
+        assertThrows(IllegalArgumentException.class, () -> RoutingTable.readSnapshot(walled, grid), "load of a hop into a wall");
+
+        // The untouched table still loads and routes like the original
+        RoutingTable loaded = RoutingTable.readSnapshot(copy(saved), grid);
+        assertEquals(table.distance(from, goal), loaded.distance(from, goal), "distance in the loaded table");
+    }
+
+    @Test
+    public void rejectsPositionsInWalls() throws IOException {
+        Model model = new Model(41, 19L, ITEMS.withEnemyCount(2));
+        Path file = directory.resolve("game.pacm");
+        GameSnapshot.save(model, file);
+        byte[] bytes = Files.readAllBytes(file);
+        int wall = firstWall(model.getGrid());
+
+        // The positions follow the header, the fixed fields, the settings and lives, score and slowed turns
+        int positions = 36 + GameParameters.SNAPSHOT_INTS * Integer.BYTES + 3 * Integer.BYTES;
+        String[] names = {"player start", "player", "start of enemy 0", "enemy 0", "start of enemy 1", "enemy 1"};
+        for (int i = 0; i < names.length; i++) {
+            byte[] damaged = bytes.clone();
+            ByteBuffer.wrap(damaged).order(ByteOrder.LITTLE_ENDIAN).putInt(positions + i * Integer.BYTES, wall);
+            Files.write(file, damaged);
+            assertThrows(IOException.class, () -> GameSnapshot.load(file), "load with the " + names[i] + " in a wall");
+        }
+        Files.write(file, bytes);
+        assertSameGame(model, GameSnapshot.load(file));
+    }
+
+    @Test
+    public void checksGridBitmaps() {
+        PackedGrid grid = new PackedGrid(41, MazeGenerator.generate(41, 20, 0.5));
+        int[] walkable = grid.walkableCells();
+        grid.setCell(walkable[1] / 41, walkable[1] % 41, Model.Cell.CHEST);
+        grid.setCell(walkable[2] / 41, walkable[2] % 41, Model.Cell.CLOCK);
+        grid.setCell(walkable[3] / 41, walkable[3] % 41, Model.Cell.FINISH);
+        ByteBuffer saved = ByteBuffer.allocate(grid.snapshotSize());
+        grid.writeSnapshot(saved);
+        int words = (grid.getCellCount() + 63) >>> 6;
+        int walls = Integer.BYTES;
+        int chests = walls + words * Long.BYTES;
+        int clocks = chests + words * Long.BYTES;
+        int last = (words - 1) * Long.BYTES;
+        assertTrue(grid.getCellCount() % 64 != 0, "the wall bitmap has no padding");
+
+        // An open cell past the last cell
+        ByteBuffer padding = copy(saved);
+        padding.putLong(walls + last, padding.getLong(walls + last) & ~Long.MIN_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> PackedGrid.readSnapshot(padding, 41), "load of open padding");
+
+        // The finish in a wall
+        ByteBuffer walledFinish = copy(saved);
+        walledFinish.putInt(0, firstWall(grid));
+        assertThrows(IllegalArgumentException.class, () -> PackedGrid.readSnapshot(walledFinish, 41), "load of a finish in a wall");
+
+        // Items past the last cell, under walls and a clock under a chest are dropped
+        ByteBuffer items = copy(saved);
+        items.putLong(chests + last, items.getLong(chests + last) | Long.MIN_VALUE);
+        items.putLong(clocks + last, items.getLong(clocks + last) | Long.MIN_VALUE);
+        int wall = firstWall(grid);
+        int wallWord = (wall >>> 6) * Long.BYTES;
+        items.putLong(chests + wallWord, items.getLong(chests + wallWord) | 1L << wall);
+        items.putLong(clocks + wallWord, items.getLong(clocks + wallWord) | 1L << wall);
+        int chest = walkable[1];
+        items.putLong(clocks + (chest >>> 6) * Long.BYTES, items.getLong(clocks + (chest >>> 6) * Long.BYTES) | 1L << chest);
+        PackedGrid loaded = PackedGrid.readSnapshot(items, 41);
+        ByteBuffer again = ByteBuffer.allocate(loaded.snapshotSize());
+        loaded.writeSnapshot(again);
+        assertArrayEquals(saved.array(), again.array(), "the loaded grid saves differently");
+        assertEquals(Model.Cell.CHEST, loaded.getCell(chest), "cell under the clock");
+        assertEquals(Model.Cell.CHEST, loaded.removeItem(chest / 41, chest % 41), "item removed");
+        assertEquals(Model.Cell.EMPTY, loaded.getCell(chest), "cell after the chest was taken");
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        Model model = new Model(41, 16L, ITEMS.withEnemyCount(2));
+        play(model, 10, new SplittableRandom(36));
+        Path file = directory.resolve("game.pacm");
+        GameSnapshot.save(model, file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int length : new int[] {0, 7, 16, 40, bytes.length / 2, bytes.length - 1}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> GameSnapshot.load(file), "load of the first " + length + " bytes");
+        }
+    }
+
+    @Test
+    public void rejectsOtherVersionAndOtherFiles() throws IOException {
+        Model model = new Model(17L);
+        Path file = directory.resolve("game.pacm");
+        GameSnapshot.save(model, file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(4, GameSnapshot.VERSION - 1);
+        Files.write(file, bytes);
+        IOException error = assertThrows(IOException.class, () -> GameSnapshot.load(file), "load of an older version");
+        assertTrue(error.getMessage().contains("version " + (GameSnapshot.VERSION - 1)), error.getMessage());
+
+        header.putInt(4, GameSnapshot.VERSION);
+        header.putInt(0, 0x504B0304); // A zip file's signature
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> GameSnapshot.load(file), "load of another kind of file");
+    }
+
+    private static int firstWall(PackedGrid grid) {
+        int cell = 0;
+        while (grid.isWalkable(cell)) {
+            cell++;
+        }
+        return cell;
+    }
+
+    /*
+     * Copies a written routing table or grid, ready to be read.
+     */
+    private static ByteBuffer copy(ByteBuffer saved) {
+        ByteBuffer copy = ByteBuffer.allocate(saved.capacity());
+        copy.put(saved.array());
+        return copy.flip();
+    }
+
+    /*
+     * Overwrites one 2-bit hop in a written routing table, addressed like RoutingTable
+     * does: cells numbered by their rank among the walkable cells.
+     */
+    private static void setHop(ByteBuffer table, int[] walkable, int goal, int from, int direction) {
+        int count = walkable.length;
+        long entry = (long) Arrays.binarySearch(walkable, goal) * count + Arrays.binarySearch(walkable, from);
+        int position = Integer.BYTES + count * Integer.BYTES + (int) (entry >>> 5) * Long.BYTES;
+        int shift = (int) (entry & 31) << 1;
+        table.putLong(position, (table.getLong(position) & ~(3L << shift)) | ((long) direction << shift));
+    }
+
+    private Model saveAndLoad(Model model) throws IOException {
+        Path file = directory.resolve("game.pacm");
+        GameSnapshot.save(model, file);
+        return GameSnapshot.load(file);
+    }
+
+    private static void play(Model model, int turns, SplittableRandom random) {
+        PlayerPolicy policy = new GreedyExitPolicy();
+        for (int turn = 0; turn < turns && TestGames.playTurn(model, policy, random); turn++) {
+        }
+    }
+
+    /*
+     * Plays the same turns on both games and checks that they stay equal.
+     */
+    private static void playBoth(Model model, Model loaded, int turns, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom loadedRandom = new SplittableRandom(seed);
+        PlayerPolicy policy = new GreedyExitPolicy();
+        PlayerPolicy loadedPolicy = new GreedyExitPolicy();
+        for (int turn = 0; turn < turns; turn++) {
+            boolean played = TestGames.playTurn(model, policy, random);
+            assertEquals(played, TestGames.playTurn(loaded, loadedPolicy, loadedRandom), "turn " + turn + " played");
+            assertSameGame(model, loaded);
+        }
+    }
+
+    /*
+     * Undoes both games as far as they go and checks that they stay equal.
+     */
+    private static void undoBoth(Model model, Model loaded) {
+        boolean undone;
+        do {
+            undone = model.undoTurn();
+            assertEquals(undone, loaded.undoTurn(), "turn undone");
+            assertSameGame(model, loaded);
+        } while (undone);
+    }
+
+    private static void assertSameGame(Model model, Model loaded) {
+        assertEquals(TestGames.describe(model), TestGames.describe(loaded), "state");
+        UndoHistory history = model.getHistory();
+        UndoHistory loadedHistory = loaded.getHistory();
+        assertEquals(history.getUndoCount(), loadedHistory.getUndoCount(), "turns to undo");
+        assertEquals(history.getRedoCount(), loadedHistory.getRedoCount(), "turns to redo");
+        assertEquals(model.getLog().getTurns(), loaded.getLog().getTurns(), "turns played");
+    }
+}
@@ -0,0 +1,261 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/*
+ * Checks every enemy search strategy, the routing table that replaces them on small
+ * mazes and the flow field shared by several enemies against a breadth-first search
+ * oracle in a randomized chase: the player wanders and sometimes teleports, the enemies
+ * follow the returned steps and sometimes respawn, as in a game with undo. This
+ * exercises the state IncrementalPathFinder carries between calls (re-rooting, a moving
+ * goal and restarts) as well as the stateless searches.
+ */
+public class PathFinderTest {
+    private static final int TURNS = 3000; // Turns played per maze
+    private static final int ENEMY_SPEED = 2; // Enemy steps per turn
+    private static final int ENEMIES = 5; // Enemies sharing a flow field
+
+    @ParameterizedTest
+    @EnumSource(PathFinder.Strategy.class)
+    public void chasesAlongShortestPathsInCorridorMaze(PathFinder.Strategy strategy) {
+        chase(strategy, new PackedGrid(41, MazeGenerator.generate(41, 5, 0.0)), 11);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PathFinder.Strategy.class)
+    public void chasesAlongShortestPathsInMazeWithLoops(PathFinder.Strategy strategy) {
+        chase(strategy, new PackedGrid(41, MazeGenerator.generate(41, 6, 0.5)), 12);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PathFinder.Strategy.class)
+    public void chasesAlongShortestPathsOnOpenGrid(PathFinder.Strategy strategy) {
+        // Random walls leave some cells cut off, so unreachable goals are checked too
+        chase(strategy, randomGrid(40, 0.3, 13), 14);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PathFinder.Strategy.class)
+    public void chasesAlongShortestPathsOnEmptyGrid(PathFinder.Strategy strategy) {
+        chase(strategy, randomGrid(30, 0.0, 15), 16);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("routedMazes")
+    public void routingTableChasesAlongShortestPaths(String maze, PackedGrid grid, long seed) {
+        RoutingTable routes = new RoutingTable(grid);
+        chase("RoutingTable on " + maze, routes, routes::distance, grid, seed);
+    }
+
+    /*
+     * The mazes of the strategy tests, and the hardcoded maze the routing table is built
+     * for in every default game. All are small enough for a routing table.
+     */
+    static Stream<Arguments> routedMazes() {
+        return Stream.of(
+            Arguments.of("corridor maze", new PackedGrid(41, MazeGenerator.generate(41, 5, 0.0)), 11L),
+            Arguments.of("maze with loops", new PackedGrid(41, MazeGenerator.generate(41, 6, 0.5)), 12L),
+            Arguments.of("open grid", randomGrid(40, 0.3, 13), 14L),
+            Arguments.of("empty grid", randomGrid(30, 0.0, 15), 16L),
+            Arguments.of("hardcoded maze", new Model(17L).getGrid(), 18L));
+    }
+
+    @Test
+    public void flowFieldStepsEveryEnemyAlongShortestPathsInMazeWithLoops() {
+        chaseWithFlowField(new PackedGrid(41, MazeGenerator.generate(41, 19, 0.5)), 20);
+    }
+
+    @Test
+    public void flowFieldStepsEveryEnemyAlongShortestPathsOnOpenGrid() {
+        // Some enemies start cut off from the player and must stay put
+        chaseWithFlowField(randomGrid(40, 0.3, 21), 22);
+    }
+
+    /*
+     * Plays a random chase with a strategy's path finder, see the overload below.
+     */
+    private static void chase(PathFinder.Strategy strategy, PackedGrid grid, long seed) {
+        PathFinder finder = strategy.create(grid);
+        chase(strategy.toString(), finder, (start, goal) -> finder.getPathLength(), grid, seed);
+    }
+
+    /*
+     * Plays a random chase and checks each returned step and path length against the
+     * oracle.
+     *
+     * @param name The name of the finder in failure messages
+     * @param finder The path finder under test
+     * @param pathLength Gets the length of the path the last nextStep(start, goal) chose
+     * @param grid The maze to chase on
+     * @param seed The seed of the player's and enemy's random moves
+     */
+    private static void chase(String name, PathFinder finder, IntBinaryOperator pathLength, PackedGrid grid, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] walkable = grid.walkableCells();
+        int player = walkable[random.nextInt(walkable.length)];
+        int enemy = walkable[random.nextInt(walkable.length)];
+
+        for (int turn = 0; turn < TURNS; turn++) {
+            player = movePlayer(grid, walkable, player, random);
+            // The enemy sometimes respawns, or moves back as an undone turn would
+            if (random.nextInt(40) == 0) {
+                enemy = walkable[random.nextInt(walkable.length)];
+            }
+
+            int[] distances = distancesTo(grid, player);
+            for (int step = 0; step < ENEMY_SPEED; step++) {
+                String where = name + " turn " + turn + " from " + enemy + " to " + player;
+                int next = finder.nextStep(enemy, player);
+                if (enemy == player) {
+                    assertEquals(player, next, where);
+                    assertEquals(0, pathLength.applyAsInt(enemy, player), where);
+                    break;
+                }
+                if (distances[enemy] < 0) {
+                    assertEquals(-1, next, where);
+                    assertEquals(-1, pathLength.applyAsInt(enemy, player), where);
+                    break;
+                }
+                assertEquals(distances[enemy], pathLength.applyAsInt(enemy, player), where);
+                assertTrue(isNeighbour(grid, enemy, next), where + ": " + next + " is not a neighbour");
+                assertEquals(distances[enemy] - 1, distances[next], where + ": " + next + " is not on a shortest path");
+                enemy = next;
+            }
+        }
+    }
+
+    /*
+     * Plays a random chase of several enemies stepping along one flow field per turn, as
+     * Model does, and checks every enemy's step and distance against the oracle.
+     *
+     * @param grid The maze to chase on
+     * @param seed The seed of the player's and enemies' random moves
+     */
+    private static void chaseWithFlowField(PackedGrid grid, long seed) {
+        FlowField field = new FlowField(grid);
+        SplittableRandom random = new SplittableRandom(seed);
+        int size = grid.getSize();
+        int[] walkable = grid.walkableCells();
+        int player = walkable[random.nextInt(walkable.length)];
+        int[] enemies = new int[ENEMIES];
+        for (int i = 0; i < ENEMIES; i++) {
+            enemies[i] = walkable[random.nextInt(walkable.length)];
+        }
+
+        for (int turn = 0; turn < TURNS; turn++) {
+            player = movePlayer(grid, walkable, player, random);
+            List<Model.Position> positions = new ArrayList<>();
+            for (int i = 0; i < ENEMIES; i++) {
+                if (random.nextInt(40) == 0) {
+                    enemies[i] = walkable[random.nextInt(walkable.length)];
+                }
+                positions.add(new Model.Position(enemies[i] / size, enemies[i] % size));
+            }
+
+            int[] distances = distancesTo(grid, player);
+            field.compute(player, positions);
+            for (int step = 0; step < ENEMY_SPEED; step++) {
+                for (int i = 0; i < ENEMIES; i++) {
+                    int enemy = enemies[i];
+                    String where = "FlowField turn " + turn + " enemy " + i + " from " + enemy + " to " + player;
+                    int next = field.nextStep(enemy);
+                    assertEquals(distances[enemy], field.distanceTo(enemy), where);
+                    if (enemy == player) {
+                        assertEquals(player, next, where);
+                    } else if (distances[enemy] < 0) {
+                        assertEquals(-1, next, where);
+                    } else {
+                        assertTrue(isNeighbour(grid, enemy, next), where + ": " + next + " is not a neighbour");
+                        assertEquals(distances[enemy] - 1, distances[next], where + ": " + next + " is not on a shortest path");
+                        enemies[i] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Moves the player up to three random steps, or sometimes to any walkable cell.
+     *
+     * @return The player's new cell
+     */
+    private static int movePlayer(PackedGrid grid, int[] walkable, int player, SplittableRandom random) {
+        if (random.nextInt(50) == 0) {
+            return walkable[random.nextInt(walkable.length)];
+        }
+        for (int steps = random.nextInt(4); steps > 0; steps--) {
+            player = randomNeighbour(grid, player, random);
+        }
+        return player;
+    }
+
+    /*
+     * Computes the distance from every cell to the goal by breadth-first search.
+     *
+     * @return The distances, -1 for cells that cannot reach the goal
+     */
+    private static int[] distancesTo(PackedGrid grid, int goal) {
+        int[] distances = new int[grid.getCellCount()];
+        Arrays.fill(distances, -1);
+        int[] queue = new int[grid.getCellCount()];
+        int head = 0;
+        int tail = 0;
+        distances[goal] = 0;
+        queue[tail++] = goal;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int mask = grid.openNeighbours(cell); mask != 0; mask &= mask - 1) {
+                int neighbour = cell + grid.offset(Integer.lowestOneBit(mask));
+                if (distances[neighbour] < 0) {
+                    distances[neighbour] = distances[cell] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static boolean isNeighbour(PackedGrid grid, int cell, int other) {
+        for (int mask = grid.openNeighbours(cell); mask != 0; mask &= mask - 1) {
+            if (cell + grid.offset(Integer.lowestOneBit(mask)) == other) return true;
+        }
+        return false;
+    }
+
+    private static int randomNeighbour(PackedGrid grid, int cell, SplittableRandom random) {
+        int mask = grid.openNeighbours(cell);
+        if (mask == 0) return cell;
+        int pick = random.nextInt(Integer.bitCount(mask));
+        for (int i = 0; i < pick; i++) {
+            mask &= mask - 1;
+        }
+        return cell + grid.offset(Integer.lowestOneBit(mask));
+    }
+
+    /*
+     * Builds a grid with each cell a wall with the given probability.
+     */
+    private static PackedGrid randomGrid(int size, double wallChance, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BitSet open = new BitSet(size * size);
+        for (int cell = 0; cell < size * size; cell++) {
+            if (random.nextDouble() >= wallChance) open.set(cell);
+        }
+        return new PackedGrid(size, open);
+    }
+}
@@ -0,0 +1,65 @@
+package application;
+
+import java.util.SplittableRandom;
+
+/*
+ * Helpers shared by the game tests: a description of a game's whole state, and
+ * reproducible turns to play on it.
+ */
+final class TestGames {
+    private TestGames() {
+    }
+
+    /*
+     * Describes everything undo, snapshots and replays must restore: lives, score, the
+     * slow timer, the end state, the player's and enemies' cells and every grid cell.
+     *
+     * @param model The game to describe
+     * @return A string equal for equal states
+     */
+    static String describe(Model model) {
+        StringBuilder text = new StringBuilder();
+        text.append("lives=").append(model.getPlayerLives())
+            .append(" score=").append(model.getScore())
+            .append(" slowed=").append(model.isEnemySlowed()).append('/').append(model.getSlowedTurnsRemaining())
+            .append(" won=").append(model.isGameWon())
+            .append(" over=").append(model.isGameOver())
+            .append(" player=").append(model.getPlayer().x).append(',').append(model.getPlayer().y)
+            .append(" enemies=");
+        for (Model.Enemy enemy : model.getEnemies()) {
+            text.append(enemy.x).append(',').append(enemy.y).append(' ');
+        }
+        PackedGrid grid = model.getGrid();
+        text.append("cells=");
+        for (int cell = 0; cell < grid.getCellCount(); cell++) {
+            text.append((char) ('0' + grid.getCell(cell).ordinal()));
+        }
+        return text.toString();
+    }
+
+    /*
+     * Plays one turn: usually the policy's move, otherwise a jump to a random cell in
+     * range, which fails if the cell cannot be reached, or a pass, then the enemies'
+     * reply.
+     *
+     * @param model The game to play
+     * @param policy The player's policy, or null to only move randomly or pass
+     * @param random The source of the random choices
+     * @return false if the game had already ended
+     */
+    static boolean playTurn(Model model, PlayerPolicy policy, SplittableRandom random) {
+        if (model.isGameWon() || model.isGameOver()) return false;
+        int choice = random.nextInt(10);
+        if (policy != null && choice < 7) {
+            Model.Position target = policy.chooseMove(model);
+            if (target != null) model.movePlayerToPosition(target);
+        } else if (choice < 9) {
+            int range = model.getParameters().getPlayerRange();
+            int x = model.getPlayer().x + random.nextInt(-range, range + 1);
+            int y = model.getPlayer().y + random.nextInt(-range, range + 1);
+            model.movePlayerToPosition(new Model.Position(x, y));
+        }
+        model.moveEnemy();
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Checks the packed turn results at the limits of their fields, and that a batch plays
+ * exactly like the same turns played one at a time: same results, same game, same
+ * changed cells, and the same stop when the game ends or a move cannot be made.
+ */
+public class TurnBatchTest {
+    @Test
+    public void packsAndUnpacksResultsAtTheirLimits() {
+        int[] flagValues = {0, TurnBatch.MOVED, TurnBatch.MOVED | TurnBatch.LIFE_LOST, TurnBatch.MOVED | TurnBatch.WON,
+            TurnBatch.MOVED | TurnBatch.LIFE_LOST | TurnBatch.LOST};
+        for (int flags : flagValues) {
+            for (int lives : new int[] {0, 1, GameParameters.MAX_LIVES}) {
+                for (int score : new int[] {0, Model.CHEST_SCORE, TurnBatch.MAX_SCORE - 1, TurnBatch.MAX_SCORE}) {
+                    int result = TurnBatch.packResult(flags, lives, score);
+                    String where = flags + "/" + lives + "/" + score;
+                    assertEquals(flags, TurnBatch.flags(result), where);
+                    assertEquals(lives, TurnBatch.lives(result), where);
+                    assertEquals(score, TurnBatch.score(result), where);
+                }
+            }
+        }
+        // Out-of-range values from a corrupt snapshot are clamped, never spilled into the other fields
+        int clamped = TurnBatch.packResult(TurnBatch.MOVED, GameParameters.MAX_LIVES + 1, Integer.MAX_VALUE);
+        assertEquals(TurnBatch.MOVED, TurnBatch.flags(clamped), "clamped flags");
+        assertEquals(GameParameters.MAX_LIVES, TurnBatch.lives(clamped), "clamped lives");
+        assertEquals(TurnBatch.MAX_SCORE, TurnBatch.score(clamped), "clamped score");
+    }
+
+    @Test
+    public void boundsChestsToTheLargestPackedScore() {
+        assertTrue((long) GameParameters.MAX_CHESTS * Model.CHEST_SCORE <= TurnBatch.MAX_SCORE, "all chests overflow the score");
+        assertTrue((long) (GameParameters.MAX_CHESTS + 1) * Model.CHEST_SCORE > TurnBatch.MAX_SCORE, "the chest bound is too tight");
+        assertEquals(GameParameters.MAX_CHESTS, GameParameters.DEFAULT.withChests(GameParameters.MAX_CHESTS).getChests());
+        assertThrows(IllegalArgumentException.class, () -> GameParameters.DEFAULT.withChests(GameParameters.MAX_CHESTS + 1),
+            "more chests than the score can hold");
+    }
+
+    @Test
+    public void stopsWhenTheGameEnds() {
+        Model model = new Model(41L, GameParameters.DEFAULT.withLives(1).withClocks(0));
+        TurnBatch batch = new TurnBatch();
+        for (int i = 0; i < 500; i++) {
+            batch.pass();
+        }
+        int played = batch.playOn(model);
+        assertTrue(played > 0 && played < batch.size(), played + " of " + batch.size() + " turns played");
+        assertTrue(model.isGameOver(), "the game did not end");
+
+        int last = batch.getResult(played - 1);
+        assertEquals(TurnBatch.MOVED | TurnBatch.LIFE_LOST | TurnBatch.LOST, TurnBatch.flags(last), "flags of the last turn");
+        assertEquals(0, TurnBatch.lives(last), "lives after the last turn");
+        for (int i = 0; i < played - 1; i++) {
+            assertEquals(TurnBatch.MOVED, TurnBatch.flags(batch.getResult(i)), "flags of turn " + i);
+            assertEquals(1, TurnBatch.lives(batch.getResult(i)), "lives after turn " + i);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.getResult(played), "result of an unplayed turn");
+        assertEquals(played, model.getLog().getTurns(), "turns counted");
+
+        // An ended game plays nothing
+        assertEquals(0, batch.playOn(model), "turns played after the end");
+    }
+
+    @Test
+    public void skipsMovesThePlayerCannotMake() {
+        Model model = new Model(41, 42L, GameParameters.DEFAULT.withEnemyCount(2));
+        Model.Position player = new Model.Position(model.getPlayer().x, model.getPlayer().y);
+        String before = TestGames.describe(model);
+        int range = model.getParameters().getPlayerRange();
+
+        TurnBatch batch = new TurnBatch();
+        int blocked = -1;
+        for (int direction = 0; direction < 4 && blocked < 0; direction++) {
+            if (!model.getGrid().isWalkable(player.x + GameLog.DX[direction], player.y + GameLog.DY[direction])) {
+                blocked = direction;
+            }
+        }
+        assertTrue(blocked >= 0, "the player's start has no wall next to it");
+        batch.step(blocked); // Into a wall
+        batch.moveTo(model, player.x + range + 1, player.y); // Out of range
+        batch.moveTo(model, player.x, player.y); // The player's own cell
+        batch.playOn(model);
+
+        assertEquals(3, batch.getPlayed(), "turns played");
+        for (int i = 0; i < 3; i++) {
+            int result = batch.getResult(i);
+            assertFalse((TurnBatch.flags(result) & TurnBatch.MOVED) != 0, "turn " + i + " moved");
+            assertEquals(model.getParameters().getLives(), TurnBatch.lives(result), "lives after turn " + i);
+        }
+        // Skipped moves give the enemies no turn and change nothing
+        assertEquals(before, TestGames.describe(model), "state after skipped moves");
+        assertEquals(0, model.getLog().getTurns(), "turns counted");
+
+        batch.clear();
+        batch.pass().playOn(model);
+        assertEquals(TurnBatch.MOVED, TurnBatch.flags(batch.getResult(0)) & TurnBatch.MOVED, "a pass after skipped moves");
+        assertEquals(1, model.getLog().getTurns(), "turns counted after the pass");
+    }
+
+    @Test
+    public void batchPlaysLikeSingleTurns() {
+        GameParameters parameters = GameParameters.DEFAULT.withChests(40).withClocks(15).withEnemyCount(3);
+        Model batched = new Model(41, 43L, parameters);
+        Model single = new Model(41, 43L, parameters);
+        batched.getChanges().clear();
+
+        // Random commands around the start; targets out of range or in walls are skipped
+        List<Consumer<TurnBatch>> commands = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(44);
+        int range = parameters.getPlayerRange();
+        int last = batched.getSize() - 1;
+        Model.Position start = batched.getPlayer();
+        for (int i = 0; i < 12; i++) {
+            int choice = random.nextInt(4);
+            if (choice == 0) {
+                commands.add(TurnBatch::pass);
+            } else if (choice == 1) {
+                int direction = random.nextInt(4);
+                commands.add(batch -> batch.step(direction));
+            } else {
+                int x = Math.min(last, Math.max(0, start.x + random.nextInt(-range, range + 1)));
+                int y = Math.min(last, Math.max(0, start.y + random.nextInt(-range, range + 1)));
+                commands.add(batch -> batch.moveTo(batched, x, y));
+            }
+        }
+        TurnBatch batch = new TurnBatch();
+        commands.forEach(command -> command.accept(batch));
+        assertEquals(commands.size(), batch.playOn(batched), "turns played");
+
+        // The same commands in batches of one, collecting the cells each turn changed
+        BitSet changed = new BitSet();
+        TurnBatch turn = new TurnBatch();
+        for (int i = 0; i < commands.size(); i++) {
+            single.getChanges().clear();
+            turn.clear();
+            commands.get(i).accept(turn);
+            assertEquals(1, turn.playOn(single), "turn " + i + " played");
+            assertEquals(batch.getResult(i), turn.getResult(0), "result of turn " + i);
+            addChanges(single.getChanges(), changed);
+        }
+        assertEquals(TestGames.describe(single), TestGames.describe(batched), "state after the batch");
+
+        // The batch collected the same cells, each once, in one change set
+        BitSet batchChanged = new BitSet();
+        addChanges(batched.getChanges(), batchChanged);
+        assertEquals(changed, batchChanged, "changed cells");
+    }
+
+    /*
+     * Adds the cells of a change set to a bit set, checking that it lists each cell once
+     * and does not ask for a full repaint.
+     */
+    private static void addChanges(CellChangeSet changes, BitSet cells) {
+        assertFalse(changes.isAll(), "the changes ask for a full repaint");
+        BitSet listed = new BitSet();
+        for (int k = 0; k < changes.size(); k++) {
+            int cell = changes.get(k);
+            assertFalse(listed.get(cell), "cell " + cell + " listed twice");
+            listed.set(cell);
+        }
+        cells.or(listed);
+    }
+}
@@ -0,0 +1,145 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Plays seeded games, then undoes every stored turn and redoes them all again,
+ * checking the whole game state after each step against the state recorded when the
+ * turn was first played. Long games check that the oldest turns are dropped once the
+ * history is full and the rest still undo exactly.
+ */
+public class UndoHistoryTest {
+    private static final int MAX_UNDO = 1023; // Turns the history keeps; one start slot stays free
+    // Enough items that the games collect chests and clocks and slow the enemies
+    private static final GameParameters ITEMS = GameParameters.DEFAULT.withChests(40).withClocks(15);
+    // Lives and a slow enemy that let random moves play past the history's capacity
+    private static final GameParameters LONG_GAME = ITEMS.withChests(60).withClocks(30)
+        .withLives(GameParameters.MAX_LIVES).withEnemySpeed(1);
+
+    @Test
+    public void undoesAndRedoesEveryTurnOnHardcodedMaze() {
+        checkUndoRedo(new Model(3L, ITEMS.withChests(20).withClocks(10)), new GreedyExitPolicy(), 400, 21);
+    }
+
+    @Test
+    public void undoesAndRedoesEveryTurnWithOneEnemy() {
+        checkUndoRedo(new Model(41, 5L, ITEMS), new GreedyExitPolicy(), 400, 22);
+    }
+
+    @Test
+    public void undoesAndRedoesEveryTurnWithSeveralEnemies() {
+        checkUndoRedo(new Model(41, 6L, ITEMS.withEnemyCount(4)), new GreedyExitPolicy(), 400, 23);
+    }
+
+    @Test
+    public void keepsTheNewestTurnsOfLongGames() {
+        // Random moves without a policy rarely reach the finish
+        int played = checkUndoRedo(new Model(31, 7L, LONG_GAME), null, 2500, 24);
+        assertTrue(played > MAX_UNDO, "only " + played + " turns were played");
+    }
+
+    @Test
+    public void keepsTheNewestTurnsOfLongGamesWithSeveralEnemies() {
+        int played = checkUndoRedo(new Model(31, 8L, LONG_GAME.withEnemyCount(3)), null, 2500, 25);
+        assertTrue(played > MAX_UNDO, "only " + played + " turns were played");
+    }
+
+    @Test
+    public void newTurnDiscardsTheTurnsToRedo() {
+        Model model = new Model(9L);
+        List<String> states = play(model, new GreedyExitPolicy(), 10, new SplittableRandom(26));
+        int turns = states.size() - 1;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(model.undoTurn(), "undo " + i);
+        }
+        assertEquals(states.get(turns - 3), TestGames.describe(model), "after undoing three turns");
+        assertEquals(3, model.getHistory().getRedoCount(), "turns to redo");
+
+        assertTrue(model.movePlayer(0, 1) || model.movePlayer(1, 0) || model.movePlayer(0, -1) || model.movePlayer(-1, 0),
+            "the player cannot move");
+        model.moveEnemy();
+        assertEquals(0, model.getHistory().getRedoCount(), "turns to redo after a new turn");
+        assertFalse(model.redoTurn(), "redo after a new turn");
+        assertTrue(model.undoTurn(), "undo of the new turn");
+        assertEquals(states.get(turns - 3), TestGames.describe(model), "after undoing the new turn");
+    }
+
+    @Test
+    public void undoTakesBackAPlayerMoveBeforeTheEnemiesReply() {
+        Model model = new Model(41, 10L, 2);
+        play(model, new GreedyExitPolicy(), 5, new SplittableRandom(27));
+        String before = TestGames.describe(model);
+        Model.Position target = new GreedyExitPolicy().chooseMove(model);
+        assertTrue(target != null && model.movePlayerToPosition(target), "the player cannot move");
+        assertTrue(model.getHistory().isOpen(), "the turn is open");
+
+        assertTrue(model.undoTurn(), "undo of the open turn");
+        assertEquals(before, TestGames.describe(model), "after undoing the open turn");
+        assertTrue(model.redoTurn(), "redo of the open turn");
+        assertTrue(model.undoTurn(), "undo after the redo");
+        assertEquals(before, TestGames.describe(model), "after undoing the redone turn");
+    }
+
+    /*
+     * Plays a game, then undoes as far as possible and redoes to the end, comparing the
+     * state after every step.
+     *
+     * @param model The game, not yet started
+     * @param policy The player's policy, or null for random steps
+     * @param maxTurns The number of turns after which to stop a game that has not ended
+     * @param seed The seed of the random choices in the turns
+     * @return The number of turns that changed the game
+     */
+    private static int checkUndoRedo(Model model, PlayerPolicy policy, int maxTurns, long seed) {
+        List<String> states = play(model, policy, maxTurns, new SplittableRandom(seed));
+        int turns = states.size() - 1;
+        int oldest = Math.max(0, turns - MAX_UNDO);
+
+        for (int turn = turns - 1; turn >= oldest; turn--) {
+            assertTrue(model.undoTurn(), "undo to turn " + turn + " of " + turns);
+            assertEquals(states.get(turn), TestGames.describe(model), "after undoing to turn " + turn);
+        }
+        assertFalse(model.undoTurn(), "undo beyond turn " + oldest);
+        assertEquals(turns - oldest, model.getHistory().getRedoCount(), "turns to redo");
+
+        for (int turn = oldest + 1; turn <= turns; turn++) {
+            assertTrue(model.redoTurn(), "redo to turn " + turn + " of " + turns);
+            assertEquals(states.get(turn), TestGames.describe(model), "after redoing to turn " + turn);
+        }
+        assertFalse(model.redoTurn(), "redo beyond turn " + turns);
+        return turns;
+    }
+
+    /*
+     * Plays a game until it ends or runs out of turns.
+     *
+     * @return The state before the game and after each turn that changed it, indexed by
+     *         the number of turns stored in the history
+     */
+    private static List<String> play(Model model, PlayerPolicy policy, int maxTurns, SplittableRandom random) {
+        UndoHistory history = model.getHistory();
+        List<String> states = new ArrayList<>();
+        states.add(TestGames.describe(model));
+        for (int turn = 0; turn < maxTurns && TestGames.playTurn(model, policy, random); turn++) {
+            // A game-ending move leaves its turn open until the next undo closes it
+            if (history.isOpen()) break;
+            // A turn that changed nothing stores no record
+            if (history.getAppliedCount() == states.size()) {
+                states.add(TestGames.describe(model));
+            } else {
+                assertEquals(states.size() - 1, history.getAppliedCount(), "turns stored after turn " + turn);
+                assertEquals(states.get(states.size() - 1), TestGames.describe(model), "state after turn " + turn);
+            }
+        }
+        if (history.isOpen()) states.add(TestGames.describe(model));
+        return states;
+    }
+}